@@ -0,0 +1,413 @@
+package org.introai;
+
+import org.introai.bots.BotType;
+import org.introai.bots.SearchResult;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Runs many independent simulations of the same ship size in lockstep, one tick at a time
+ * across the whole batch. Every ship's state lives in flat primitive arrays indexed by slot
+ * (open cells, burning cells, fire front, burning-neighbor counts, the bot's remaining path),
+ * so a tick is a few tight loops over those arrays with no bot objects, virtual calls, or
+ * hash lookups. Ships that finish are dropped from the active list, so later ticks only touch
+ * the runs still going.
+ * <p>
+ * Bots are built in as policies rather than Bot instances:
+ * <ul>
+ *     <li>FOLLOW_PLAN plans once with the same search as Bot1 and follows that plan, so
+ *     runs give exactly the outcomes Bot1 gets in Simulation.run.</li>
+ *     <li>REPLAN_WHEN_BLOCKED is a policy of its own. It starts on the same path as Bot2
+ *     and keeps to a shortest open path, but only searches again, by breadth-first search,
+ *     when fire lands on the rest of its path. Fire only makes paths longer, so the rest of
+ *     an unblocked shortest path is still a shortest path. When several paths are equally
+ *     short it can pick a different one than Bot2 would, and so walk into different fire;
+ *     it is not Bot2 and is not reported as Bot2.</li>
+ * </ul>
+ * Each slot's fire is drawn from its own RandomSource in the same order as
+ * Simulation.simulateFireSpread, so a ship's fire is the same as in a single simulation.
+ */
+public class BatchSimulation {
+    /**
+     * How the bots in a batch choose their moves.
+     */
+    public enum Policy {
+        /** Plan a shortest path once and follow it, like Bot1. */
+        FOLLOW_PLAN,
+        /** Keep to a shortest path that avoids fire, replanning only when it is blocked. */
+        REPLAN_WHEN_BLOCKED
+    }
+
+    private static final byte RUNNING = 0;
+    private static final byte WON = 1;
+    private static final byte LOST = 2;
+
+    private final int size;
+    private final int capacity;
+    private final Policy policy;
+    private final int slots;
+    private final int words;
+    private final int[] neighbors;
+
+    // Per slot, words entries each
+    private final long[] open;
+    private final long[] fire;
+    private final long[] front;
+    private final long[] onPath;
+    // Per slot, capacity entries each
+    private final byte[] burningNeighbors;
+    private final int[] path;
+    // Per slot, DIRECTIONS + 1 entries each
+    private final double[] chances;
+    // Per slot
+    private final RandomSource[] randoms;
+    private final int[] botIndex;
+    private final int[] goalIndex;
+    private final int[] pathLength;
+    private final boolean[] blocked;
+    private final byte[] status;
+    private final int[] ticks;
+    private int count;
+
+    // Scratch space shared by every slot
+    private final int[] ignited;
+    private final int[] queue;
+    private final int[] parents;
+    private final int[] visited;
+    private int visitStamp;
+
+    /**
+     * Creates an empty batch.
+     *
+     * @param size the height and width of every ship in the batch
+     * @param slots the most simulations the batch can hold
+     * @param policy how every bot in the batch moves
+     */
+    public BatchSimulation(int size, int slots, Policy policy) {
+        if (slots < 1) throw new IllegalArgumentException("A batch needs at least 1 slot, not " + slots);
+        this.size = Math.abs(size);
+        this.capacity = MortonOrder.capacity(this.size);
+        this.policy = policy;
+        this.slots = slots;
+        this.words = (capacity + Long.SIZE - 1) / Long.SIZE;
+        this.neighbors = new int[capacity * ShipMap.DIRECTIONS];
+        this.open = new long[slots * words];
+        this.fire = new long[slots * words];
+        this.front = new long[slots * words];
+        this.onPath = new long[slots * words];
+        this.burningNeighbors = new byte[slots * capacity];
+        this.path = new int[slots * capacity];
+        this.chances = new double[slots * (ShipMap.DIRECTIONS + 1)];
+        this.randoms = new RandomSource[slots];
+        this.botIndex = new int[slots];
+        this.goalIndex = new int[slots];
+        this.pathLength = new int[slots];
+        this.blocked = new boolean[slots];
+        this.status = new byte[slots];
+        this.ticks = new int[slots];
+        this.ignited = new int[capacity];
+        this.queue = new int[capacity];
+        this.parents = new int[capacity];
+        this.visited = new int[capacity];
+        Arrays.fill(neighbors, -1);
+    }
+
+    /**
+     * Runs a batch of seeded simulations. Each ship and its fire are drawn from its seed
+     * exactly as Simulation.runSeeded draws them.
+     *
+     * @param policy how every bot in the batch moves
+     * @param shipSize the size of every ship
+     * @param shipFlammability the flammability of every ship
+     * @param seeds one seed per simulation
+     * @return whether each simulation was won, in the order of the seeds
+     */
+    public static boolean[] runSeeded(Policy policy, int shipSize, double shipFlammability, long[] seeds) {
+        BatchSimulation batch = new BatchSimulation(shipSize, seeds.length, policy);
+        for (long seed : seeds) {
+            RandomSource simRandom = RandomSource.seeded(seed).split();
+            batch.add(new ShipMap(shipSize, shipFlammability, simRandom.split()), simRandom);
+        }
+        batch.run();
+        boolean[] won = new boolean[seeds.length];
+        for (int slot = 0; slot < seeds.length; slot++) won[slot] = batch.isWon(slot);
+        return won;
+    }
+
+    /**
+     * Copies a ship into the next free slot and plans the bot's first path on it.
+     *
+     * @param shipMap the ship's starting state; it is not changed or kept
+     * @param fireRandom the source of the ship's fire, which the batch takes over
+     * @return the slot the simulation was added to
+     */
+    public int add(ShipMap shipMap, RandomSource fireRandom) {
+        if (count == slots) throw new IllegalStateException("The batch is full at " + slots + " simulations");
+        if (shipMap.getSize() != size)
+            throw new IllegalArgumentException("Ship of size " + shipMap.getSize() +
+                    " added to a batch of size " + size);
+        int slot = count++;
+        if (slot == 0) {
+            for (int index = 0; index < capacity; index++)
+                for (int direction = 0; direction < ShipMap.DIRECTIONS; direction++)
+                    neighbors[index * ShipMap.DIRECTIONS + direction] = shipMap.neighborIndex(index, direction);
+        }
+
+        int base = slot * words;
+        for (int index = 0; index < capacity; index++) {
+            if (shipMap.getLayout().isOpen(index)) open[base + (index >>> 6)] |= 1L << index;
+        }
+        for (int index = 0; index < capacity; index++) {
+            if (shipMap.isOnFire(index)) ignite(slot, index);
+        }
+        double q = shipMap.getFlammability();
+        for (int k = 1; k <= ShipMap.DIRECTIONS; k++)
+            chances[slot * (ShipMap.DIRECTIONS + 1) + k] = 1 - Math.pow(1 - q, k);
+        randoms[slot] = fireRandom;
+        botIndex[slot] = shipMap.getBotIndex();
+        goalIndex[slot] = shipMap.cellIndex(shipMap.getGoalLocation());
+
+        // The first plan uses the same search as the bots, so the first path is the same
+        SearchResult plan = Search.aStarSearch(shipMap.getBotLocation(), shipMap.getGoalLocation(), shipMap);
+        if (plan == null) {
+            status[slot] = LOST;
+        } else {
+            int curr = botIndex[slot];
+            int[] cells = new int[plan.getDistanceFromStartToEnd()];
+            for (int i = 0; i < cells.length; i++) {
+                curr = neighbors[curr * ShipMap.DIRECTIONS + plan.moveAt(i).ordinal()];
+                cells[i] = curr;
+            }
+            setPath(slot, cells, cells.length);
+        }
+        return slot;
+    }
+
+    /**
+     * Runs every simulation in the batch to its end.
+     */
+    public void run() {
+        int[] active = new int[count];
+        int activeCount = 0;
+        for (int slot = 0; slot < count; slot++) {
+            if (status[slot] == RUNNING) active[activeCount++] = slot;
+        }
+
+        while (activeCount > 0) {
+            for (int i = 0; i < activeCount; i++) moveBot(active[i]);
+            for (int i = 0; i < activeCount; i++) spreadFire(active[i]);
+
+            int kept = 0;
+            for (int i = 0; i < activeCount; i++) {
+                int slot = active[i];
+                ticks[slot]++;
+                boolean goalReached = botIndex[slot] == goalIndex[slot];
+                if (status[slot] == RUNNING && (isBurning(slot, botIndex[slot]) || isBurning(slot, goalIndex[slot])))
+                    status[slot] = LOST;
+                if (goalReached) status[slot] = WON;
+                if (status[slot] == RUNNING) active[kept++] = slot;
+            }
+            activeCount = kept;
+        }
+    }
+
+    /**
+     * Moves a bot one step along its path, replanning first if its policy calls for it. A bot
+     * with no path left to the goal loses, as a bot whose makeAMove fails does.
+     *
+     * @param slot the simulation's slot
+     */
+    private void moveBot(int slot) {
+        if (policy == Policy.REPLAN_WHEN_BLOCKED && blocked[slot] && !replan(slot)) {
+            status[slot] = LOST;
+            return;
+        }
+        int next = path[slot * capacity + --pathLength[slot]];
+        onPath[slot * words + (next >>> 6)] &= ~(1L << next);
+        botIndex[slot] = next;
+    }
+
+    /**
+     * Spreads a ship's fire by one tick. Only cells on the fire front can ignite, and they are
+     * rolled in index order, the same order as Simulation.simulateFireSpread.
+     *
+     * @param slot the simulation's slot
+     */
+    private void spreadFire(int slot) {
+        RandomSource random = randoms[slot];
+        int base = slot * words;
+        int chanceBase = slot * (ShipMap.DIRECTIONS + 1);
+        int countBase = slot * capacity;
+        int ignitions = 0;
+        for (int word = 0; word < words; word++) {
+            for (long bits = front[base + word]; bits != 0; bits &= bits - 1) {
+                int index = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                if (random.nextDouble() < chances[chanceBase + burningNeighbors[countBase + index]])
+                    ignited[ignitions++] = index;
+            }
+        }
+        for (int i = 0; i < ignitions; i++) ignite(slot, ignited[i]);
+    }
+
+    /**
+     * Sets a cell on fire and updates the fire front around it.
+     *
+     * @param slot the simulation's slot
+     * @param index the cell's index
+     */
+    private void ignite(int slot, int index) {
+        int base = slot * words;
+        long bit = 1L << index;
+        fire[base + (index >>> 6)] |= bit;
+        front[base + (index >>> 6)] &= ~bit;
+        if ((onPath[base + (index >>> 6)] & bit) != 0) blocked[slot] = true;
+        for (int direction = 0; direction < ShipMap.DIRECTIONS; direction++) {
+            int neighbor = neighbors[index * ShipMap.DIRECTIONS + direction];
+            if (neighbor < 0) continue;
+            burningNeighbors[slot * capacity + neighbor]++;
+            if (isPassable(slot, neighbor)) front[base + (neighbor >>> 6)] |= 1L << neighbor;
+        }
+    }
+
+    /**
+     * Finds a shortest path from the bot to the goal through open cells that are not burning,
+     * by breadth-first search, and makes it the bot's path.
+     *
+     * @param slot the simulation's slot
+     * @return true if a path was found, otherwise false
+     */
+    private boolean replan(int slot) {
+        int start = botIndex[slot];
+        int goal = goalIndex[slot];
+        visitStamp++;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visited[start] = visitStamp;
+        boolean found = start == goal;
+        while (head < tail && !found) {
+            int curr = queue[head++];
+            for (int direction = 0; direction < ShipMap.DIRECTIONS; direction++) {
+                int neighbor = neighbors[curr * ShipMap.DIRECTIONS + direction];
+                if (neighbor < 0 || visited[neighbor] == visitStamp || !isPassable(slot, neighbor)) continue;
+                visited[neighbor] = visitStamp;
+                parents[neighbor] = curr;
+                if (neighbor == goal) {
+                    found = true;
+                    break;
+                }
+                queue[tail++] = neighbor;
+            }
+        }
+        if (!found) return false;
+
+        // Walking the parents gives the path from the goal back, which is the order it is stored in
+        int length = 0;
+        for (int curr = goal; curr != start; curr = parents[curr]) queue[length++] = curr;
+        clearPath(slot);
+        int pathBase = slot * capacity;
+        for (int i = 0; i < length; i++) {
+            path[pathBase + i] = queue[i];
+            onPath[slot * words + (queue[i] >>> 6)] |= 1L << queue[i];
+        }
+        pathLength[slot] = length;
+        blocked[slot] = false;
+        return true;
+    }
+
+    /**
+     * Replaces a bot's path.
+     *
+     * @param slot the simulation's slot
+     * @param cells the cells of the path in walking order, not including the bot's cell
+     * @param length the number of cells
+     */
+    private void setPath(int slot, int[] cells, int length) {
+        clearPath(slot);
+        int pathBase = slot * capacity;
+        for (int i = 0; i < length; i++) {
+            int cell = cells[length - 1 - i];
+            path[pathBase + i] = cell;
+            onPath[slot * words + (cell >>> 6)] |= 1L << cell;
+        }
+        pathLength[slot] = length;
+        blocked[slot] = false;
+    }
+
+    /**
+     * Forgets the rest of a bot's path.
+     *
+     * @param slot the simulation's slot
+     */
+    private void clearPath(int slot) {
+        int pathBase = slot * capacity;
+        for (int i = 0; i < pathLength[slot]; i++) {
+            int cell = path[pathBase + i];
+            onPath[slot * words + (cell >>> 6)] &= ~(1L << cell);
+        }
+        pathLength[slot] = 0;
+    }
+
+    private boolean isBurning(int slot, int index) {
+        return (fire[slot * words + (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    private boolean isPassable(int slot, int index) {
+        int word = slot * words + (index >>> 6);
+        return ((open[word] & ~fire[word]) & (1L << index)) != 0;
+    }
+
+    /**
+     * Detects whether a finished simulation was won.
+     *
+     * @param slot the simulation's slot
+     * @return true if the bot reached the goal, otherwise false
+     */
+    public boolean isWon(int slot) {
+        return status[slot] == WON;
+    }
+
+    /**
+     * The number of ticks a simulation ran for.
+     *
+     * @param slot the simulation's slot
+     * @return the number of ticks
+     */
+    public int getTicks(int slot) {
+        return ticks[slot];
+    }
+
+    /**
+     * The number of simulations in the batch.
+     *
+     * @return the number of slots in use
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Checks that FOLLOW_PLAN reproduces Bot1 exactly: every seed must give the same outcome in
+     * a batch as in Simulation.runSeeded. Optionally takes a ship size and a number of seeds.
+     *
+     * @param args the ship size and the number of seeds per q-value
+     */
+    public static void main(String[] args) {
+        int shipSize = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        for (double q = 0.1; q < 1; q += 0.2) {
+            long[] seeds = new long[runs];
+            for (int i = 0; i < runs; i++) seeds[i] = RandomSource.mixSeed(shipSize, Double.doubleToLongBits(q), i);
+            boolean[] batchWins = runSeeded(Policy.FOLLOW_PLAN, shipSize, q, seeds);
+            int wins = 0;
+            for (int i = 0; i < runs; i++) {
+                boolean singleWin = Simulation.runSeeded(BotType.BOT1, shipSize, q, seeds[i]);
+                if (batchWins[i] != singleWin)
+                    throw new IllegalStateException("FOLLOW_PLAN differs from Bot1 at q = " + q + ", seed " + seeds[i]);
+                if (singleWin) wins++;
+            }
+            System.out.printf(Locale.ROOT, "q = %.1f: %d/%d wins, batch matches Bot1%n", q, wins, runs);
+        }
+    }
+}
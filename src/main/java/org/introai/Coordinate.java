@@ -12,6 +12,14 @@ public class Coordinate {
         this.y = y;
     }
 
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
     public Coordinate getAbove() {
         return new Coordinate(x, y + 1);
     }
@@ -0,0 +1,45 @@
+package org.introai;
+
+/**
+ * The cost of stepping into a cell during a search. A cost has two parts that are compared
+ * lexicographically: a tier, which counts how many undesirable cells the path enters, and a
+ * weight, which is the path's length plus any soft penalties. A search prefers any path with
+ * a lower total tier, and only uses weight to break ties between paths in the same tier.
+ */
+public interface CostModel {
+    /** Returned by cost for cells that may not be entered at all. */
+    long BLOCKED = -1;
+
+    /** Every step costs one, so the search finds the shortest path. */
+    CostModel UNIT = cell -> 1;
+
+    /**
+     * The cost of moving into a cell.
+     *
+     * @param cell an open cell adjacent to the cell being expanded
+     * @return a value produced by of(tier, weight), or BLOCKED
+     */
+    long cost(Coordinate cell);
+
+    /**
+     * An extra amount added to a cell's priority in the fringe but not to the cost of paths
+     * through it. It makes the search look at the cell later without making it any further away.
+     *
+     * @param cell an open cell adjacent to the cell being expanded
+     * @return the amount added to the cell's priority, 0 by default
+     */
+    default long penalty(Coordinate cell) {
+        return 0;
+    }
+
+    /**
+     * Packs a tier and a weight into a single cost.
+     *
+     * @param tier how many undesirable cells this step counts as (0 or more)
+     * @param weight the step's length plus any soft penalty (1 or more)
+     * @return a cost that sorts first by tier and then by weight
+     */
+    static long of(int tier, int weight) {
+        return ((long) tier << 32) | weight;
+    }
+}
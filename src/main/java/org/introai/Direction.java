@@ -0,0 +1,59 @@
+package org.introai;
+
+/**
+ * The four ways the bot can move. Each direction's ordinal is the matching ShipMap direction
+ * constant, so directions can index the same per-direction arrays.
+ */
+public enum Direction {
+    ABOVE(0, 1),
+    BELOW(0, -1),
+    LEFT(-1, 0),
+    RIGHT(1, 0);
+
+    private static final Direction[] VALUES = values();
+
+    private final int dx;
+    private final int dy;
+
+    Direction(int dx, int dy) {
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    /**
+     * The direction with the given ordinal, without copying the values array.
+     *
+     * @param code ShipMap.ABOVE, BELOW, LEFT, or RIGHT
+     * @return the matching direction
+     */
+    public static Direction of(int code) {
+        return VALUES[code];
+    }
+
+    /**
+     * The direction of a step between two neighboring cells.
+     *
+     * @param from the cell moved from
+     * @param to a neighbor of from
+     * @return the direction from from to to
+     * @throws RuntimeException if the cells are not neighbors
+     */
+    public static Direction between(Coordinate from, Coordinate to) {
+        int dx = to.getX() - from.getX();
+        int dy = to.getY() - from.getY();
+        for (Direction direction : VALUES) {
+            if (direction.dx == dx && direction.dy == dy) return direction;
+        }
+        throw new RuntimeException(from + " and " + to + " are not neighbors.");
+    }
+
+    /**
+     * The neighbor of a cell in this direction.
+     *
+     * @param cell the cell to step from
+     * @return a new Coordinate one step away
+     */
+    public Coordinate step(Coordinate cell) {
+        return new Coordinate(cell.getX() + dx, cell.getY() + dy);
+    }
+}
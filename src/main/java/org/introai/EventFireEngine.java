@@ -0,0 +1,173 @@
+package org.introai;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Computes a whole fire trajectory in one Dijkstra-style pass instead of tick by tick.
+ * <p>
+ * A cell with k burning neighbors ignites with probability 1 - (1 - q)^k each tick, which is
+ * the same as each burning neighbor independently igniting it after a Geometric(q) delay.
+ * A cell's ignition tick is therefore the shortest path from the initial fire when every
+ * neighbor edge is given a random geometric weight. Delays are only sampled when an edge is
+ * relaxed, so the total cost is O(cells log cells) no matter how many ticks the fire lasts.
+ * <p>
+ * Each directed neighbor edge draws its uniform roll once and keeps it for the life of the
+ * engine. Running the same engine at several flammability values therefore couples the fires:
+ * every delay shrinks as q grows, so a cell never ignites later at a higher q. The rolls are
+ * shared but the pass is not; each call to run(q) is its own Dijkstra pass, so a grid of q
+ * values costs one pass per value.
+ */
+public class EventFireEngine {
+    private final ShipMap shipMap;
+    private final double[] edgeRolls;
+    private final RandomSource random;
+
+    /**
+     * Creates an engine for the fire on the given ship. The ship is not modified.
+     *
+     * @param shipMap the ship whose fire will be computed
+     */
+    public EventFireEngine(ShipMap shipMap) {
+        this(shipMap, RandomSource.unseeded());
+    }
+
+    /**
+     * Creates an engine for the fire on the given ship. The ship is not modified.
+     *
+     * @param shipMap the ship whose fire will be computed
+     * @param random the source of the edge rolls
+     */
+    public EventFireEngine(ShipMap shipMap, RandomSource random) {
+        this.shipMap = shipMap;
+        this.random = random;
+        this.edgeRolls = new double[shipMap.getCellCount() * ShipMap.DIRECTIONS];
+        Arrays.fill(edgeRolls, Double.NaN);
+    }
+
+    /**
+     * Samples one fire trajectory at the ship's flammability.
+     *
+     * @return the tick on which each cell ignites
+     */
+    public FireTrajectory run() {
+        return run(shipMap.getFlammability());
+    }
+
+    /**
+     * Computes the fire trajectory at the given flammability, reusing any edge rolls drawn by
+     * earlier runs of this engine.
+     *
+     * @param q the flammability to spread the fire with
+     * @return the tick on which each cell ignites
+     */
+    public FireTrajectory run(double q) {
+        int[] ignitionTicks = new int[shipMap.getCellCount()];
+        boolean[] settled = new boolean[ignitionTicks.length];
+        PriorityQueue<PriorityCoordinate> events = new PriorityQueue<>();
+        Arrays.fill(ignitionTicks, FireTrajectory.NEVER);
+
+        for (Coordinate cell : shipMap.getFireCells()) {
+            ignitionTicks[shipMap.cellIndex(cell)] = 0;
+            events.add(new PriorityCoordinate(cell, 0));
+        }
+
+        while (!events.isEmpty()) {
+            int currIndex = shipMap.cellIndex(events.poll().getCoordinate());
+            if (settled[currIndex]) continue;
+            settled[currIndex] = true;
+            if (q <= 0) continue;
+
+            for (int direction = 0; direction < ShipMap.DIRECTIONS; direction++) {
+                int neighborIndex = shipMap.neighborIndex(currIndex, direction);
+                if (neighborIndex < 0 || !shipMap.isOpen(neighborIndex) || settled[neighborIndex]) continue;
+                double roll = edgeRoll(currIndex * ShipMap.DIRECTIONS + direction);
+                long tick = (long) ignitionTicks[currIndex] + ignitionDelay(q, roll);
+                if (tick < ignitionTicks[neighborIndex]) {
+                    ignitionTicks[neighborIndex] = (int) tick;
+                    events.add(new PriorityCoordinate(shipMap.coordinateOf(neighborIndex), tick));
+                }
+            }
+        }
+        return new FireTrajectory(shipMap, ignitionTicks);
+    }
+
+    /**
+     * The uniform roll for a directed edge, drawn the first time the edge is relaxed.
+     *
+     * @param edge the edge's index
+     * @return a uniform value in [0, 1)
+     */
+    private double edgeRoll(int edge) {
+        if (Double.isNaN(edgeRolls[edge])) edgeRolls[edge] = random.nextDouble();
+        return edgeRolls[edge];
+    }
+
+    /**
+     * Converts a uniform roll into the number of ticks one burning neighbor takes to ignite a cell.
+     *
+     * @param q the ship's flammability
+     * @param roll a uniform value in [0, 1)
+     * @return a Geometric(q) delay of at least one tick
+     */
+    static int ignitionDelay(double q, double roll) {
+        if (q >= 1) return 1;
+        double delay = Math.floor(Math.log1p(-roll) / Math.log1p(-q));
+        if (delay >= FireTrajectory.NEVER - 1) return FireTrajectory.NEVER;
+        return 1 + (int) delay;
+    }
+
+    /**
+     * Checks that the engine spreads fire with the same distribution as
+     * Simulation.simulateFireSpread. On one seeded ship per q-value, it samples many fires
+     * both ways and compares the mean number of burning cells after each of the first few
+     * ticks. Any difference of more than five standard errors fails. Optionally takes a ship
+     * size and a number of samples.
+     *
+     * @param args the ship size and the number of fires sampled each way
+     */
+    public static void main(String[] args) {
+        int shipSize = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        int samples = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int ticks = 12;
+        for (double q : new double[]{0.2, 0.5, 0.8}) {
+            RandomSource random = RandomSource.seeded(RandomSource.mixSeed(shipSize, Double.doubleToLongBits(q)));
+            ShipMap ship = new ShipMap(shipSize, q, random.split());
+            double[][] tickSums = new double[2][ticks];
+            double[][] tickSquares = new double[2][ticks];
+            for (int i = 0; i < samples; i++) {
+                FireTrajectory[] fires = {
+                        new FireTrajectory(ship, random.split()),
+                        new EventFireEngine(ship, random.split()).run()
+                };
+                for (int engine = 0; engine < fires.length; engine++) {
+                    int burning = 0;
+                    for (int tick = 0; tick < ticks; tick++) {
+                        burning += fires[engine].cellsIgnitedAt(tick).size();
+                        tickSums[engine][tick] += burning;
+                        tickSquares[engine][tick] += (double) burning * burning;
+                    }
+                }
+            }
+
+            double worst = 0;
+            for (int tick = 0; tick < ticks; tick++) {
+                double variance = 0;
+                double[] means = new double[2];
+                for (int engine = 0; engine < 2; engine++) {
+                    means[engine] = tickSums[engine][tick] / samples;
+                    variance += (tickSquares[engine][tick] / samples - means[engine] * means[engine]) / samples;
+                }
+                double difference = Math.abs(means[0] - means[1]);
+                if (difference == 0) continue;
+                double errors = difference / Math.sqrt(variance);
+                if (errors > 5)
+                    throw new IllegalStateException("Burning cells after tick " + tick + " at q = " + q +
+                            " differ: " + means[0] + " ticked, " + means[1] + " event-driven");
+                worst = Math.max(worst, errors);
+            }
+            System.out.printf(Locale.ROOT, "q = %.1f: largest difference %.2f standard errors%n", q, worst);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.introai;
+
+import java.util.BitSet;
+import java.util.HashSet;
+
+/**
+ * The open cells of a ship that are next to fire, kept up to date as cells ignite. Each
+ * ignition updates the cell and its four neighbors, so the front never has to be rebuilt
+ * from the whole ship. Alongside the front it keeps how many burning neighbors every cell
+ * has, which is what decides how likely the cell is to catch fire.
+ * <p>
+ * A ship creates its front on first use with ShipMap.getFireFront and keeps it registered
+ * as a listener from then on.
+ */
+public final class FireFront implements ShipListener {
+    private final int size;
+    private final byte[] burningNeighbors;
+    private final BitSet front;
+
+    /**
+     * Builds the front of a ship from its burning cells.
+     *
+     * @param shipMap the ship whose front is built
+     */
+    FireFront(ShipMap shipMap) {
+        this.size = shipMap.getSize();
+        this.burningNeighbors = new byte[shipMap.getCellCount()];
+        this.front = new BitSet(shipMap.getCellCount());
+        ShipLayout layout = shipMap.getLayout();
+        for (int i = 0; i < layout.getOpenCount(); i++) {
+            int index = layout.openIndex(i);
+            if (shipMap.isOnFire(index)) cellIgnited(shipMap, index);
+        }
+    }
+
+    /**
+     * Creates a copy of another front.
+     *
+     * @param other the front to copy
+     */
+    private FireFront(FireFront other) {
+        this.size = other.size;
+        this.burningNeighbors = other.burningNeighbors.clone();
+        this.front = (BitSet) other.front.clone();
+    }
+
+    /**
+     * Creates a copy of this front for a copy of its ship.
+     *
+     * @return a new front with the same cells
+     */
+    FireFront copy() {
+        return new FireFront(this);
+    }
+
+    @Override
+    public void cellIgnited(ShipMap shipMap, int index) {
+        front.clear(index);
+        for (int direction = 0; direction < ShipMap.DIRECTIONS; direction++) {
+            int neighbor = shipMap.neighborIndex(index, direction);
+            if (neighbor < 0) continue;
+            burningNeighbors[neighbor]++;
+            if (shipMap.isOpen(neighbor)) front.set(neighbor);
+        }
+    }
+
+    /**
+     * Detects whether an open cell is next to fire.
+     *
+     * @param index a cell's index
+     * @return true if the cell is open, not burning, and next to a burning cell
+     */
+    public boolean contains(int index) {
+        return front.get(index);
+    }
+
+    /**
+     * Detects whether an open cell is next to fire.
+     *
+     * @param cell the cell in question; cells outside the ship are never in the front
+     * @return true if the cell is open, not burning, and next to a burning cell
+     */
+    public boolean contains(Coordinate cell) {
+        return cell.isInBounds(size, size) && front.get(MortonOrder.encode(cell.getX(), cell.getY()));
+    }
+
+    /**
+     * The number of burning cells next to a cell.
+     *
+     * @param index a cell's index
+     * @return a count from 0 to 4
+     */
+    public int burningNeighbors(int index) {
+        return burningNeighbors[index];
+    }
+
+    /**
+     * Finds the next cell of the front in index order, so the front can be walked in the
+     * ship's Z-order.
+     *
+     * @param fromIndex the first index to check
+     * @return the smallest index at or after fromIndex that is in the front, or -1 if there is none
+     */
+    public int nextCell(int fromIndex) {
+        return front.nextSetBit(fromIndex);
+    }
+
+    /**
+     * Detects whether any cell of the front is in a set of cells.
+     *
+     * @param cells a set of cell indices
+     * @return true if the front and the set share a cell, otherwise false
+     */
+    public boolean intersects(BitSet cells) {
+        return front.intersects(cells);
+    }
+
+    /**
+     * The number of cells in the front.
+     *
+     * @return how many open cells are next to fire
+     */
+    public int size() {
+        return front.cardinality();
+    }
+
+    /**
+     * The cells of the front.
+     *
+     * @param shipMap the ship this front belongs to
+     * @return a new set of the open cells next to fire
+     */
+    public HashSet<Coordinate> getCells(ShipMap shipMap) {
+        HashSet<Coordinate> cells = new HashSet<>();
+        for (int index = front.nextSetBit(0); index >= 0; index = front.nextSetBit(index + 1))
+            cells.add(shipMap.coordinateOf(index));
+        return cells;
+    }
+}
@@ -0,0 +1,188 @@
+package org.introai;
+
+import org.introai.bots.BotType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * The complete course of a fire on one ship, stored as the tick on which each cell ignites.
+ * Fire spread never depends on where the bot is, so a single trajectory can be replayed for
+ * every bot evaluated on the same ship. Trajectories are read-only once created.
+ */
+public class FireTrajectory {
+    public static final int NEVER = Integer.MAX_VALUE;
+
+    private final ShipMap shipMap;
+    private final int[] ignitionTicks;
+    private final ArrayList<List<Coordinate>> cellsByTick;
+
+    /**
+     * Runs the fire on a copy of the given ship until it can spread no further and records
+     * when each cell ignites. The ship itself is not modified.
+     *
+     * @param shipMap the ship whose fire will be simulated
+     */
+    public FireTrajectory(ShipMap shipMap) {
+        this(shipMap, RandomSource.unseeded());
+    }
+
+    /**
+     * Runs the fire on a copy of the given ship until it can spread no further and records
+     * when each cell ignites. The ship itself is not modified.
+     *
+     * @param shipMap the ship whose fire will be simulated
+     * @param random the source of the fire's spread
+     */
+    public FireTrajectory(ShipMap shipMap, RandomSource random) {
+        this.shipMap = shipMap;
+        this.ignitionTicks = new int[shipMap.getCellCount()];
+        this.cellsByTick = new ArrayList<>();
+        Arrays.fill(ignitionTicks, NEVER);
+
+        ShipMap shipCopy = shipMap.copyState();
+        Simulation fireSim = new Simulation(shipCopy, random);
+        HashSet<Coordinate> initialFire = shipCopy.getFireCells();
+        recordTick(new ArrayList<>(initialFire));
+
+        if (shipCopy.getFlammability() <= 0) return;
+        int remaining = countBurnable(shipCopy, initialFire);
+        while (remaining > 0) {
+            ArrayList<Coordinate> ignited = fireSim.simulateFireSpread();
+            recordTick(ignited);
+            remaining -= ignited.size();
+        }
+    }
+
+    /**
+     * Wraps precomputed ignition ticks. Every cell whose tick is not NEVER must be on the ship.
+     *
+     * @param shipMap the ship the ticks belong to
+     * @param ignitionTicks the tick each cell ignites on, indexed by ShipMap.cellIndex
+     */
+    FireTrajectory(ShipMap shipMap, int[] ignitionTicks) {
+        this.shipMap = shipMap;
+        this.ignitionTicks = ignitionTicks;
+        this.cellsByTick = new ArrayList<>();
+
+        for (int index = 0; index < ignitionTicks.length; index++) {
+            int tick = ignitionTicks[index];
+            if (tick == NEVER) continue;
+            while (cellsByTick.size() <= tick) cellsByTick.add(new ArrayList<>());
+            cellsByTick.get(tick).add(shipMap.coordinateOf(index));
+        }
+        cellsByTick.replaceAll(Collections::unmodifiableList);
+    }
+
+    /**
+     * Stores the cells ignited during the next tick.
+     *
+     * @param ignited the cells that caught fire
+     */
+    private void recordTick(ArrayList<Coordinate> ignited) {
+        int tick = cellsByTick.size();
+        for (Coordinate cell : ignited) {
+            ignitionTicks[shipMap.cellIndex(cell)] = tick;
+        }
+        cellsByTick.add(Collections.unmodifiableList(ignited));
+    }
+
+    /**
+     * Counts the open cells that the fire can eventually reach.
+     *
+     * @param shipMap the ship's state
+     * @param fireCells the cells currently burning
+     * @return the number of open cells connected to a burning cell
+     */
+    private static int countBurnable(ShipMap shipMap, HashSet<Coordinate> fireCells) {
+        HashSet<Coordinate> visited = new HashSet<>();
+        ArrayDeque<Coordinate> queue = new ArrayDeque<>(fireCells);
+        while (!queue.isEmpty()) {
+            for (Coordinate neighbor : shipMap.openNeighbors(queue.poll())) {
+                if (visited.add(neighbor)) queue.add(neighbor);
+            }
+        }
+        return visited.size();
+    }
+
+    /**
+     * The tick on which a cell ignites. Cells burning at the start have tick 0.
+     *
+     * @param cell the cell in question
+     * @return the ignition tick, or NEVER if the cell never burns
+     */
+    public int getIgnitionTick(Coordinate cell) {
+        if (!cell.isInBounds(shipMap.getSize(), shipMap.getSize())) return NEVER;
+        return ignitionTicks[shipMap.cellIndex(cell)];
+    }
+
+    /**
+     * Detects whether a cell is burning at the end of the given tick.
+     *
+     * @param cell the cell in question
+     * @param tick the tick in question
+     * @return true if the cell has ignited by that tick, otherwise false
+     */
+    public boolean isOnFire(Coordinate cell, int tick) {
+        return getIgnitionTick(cell) <= tick;
+    }
+
+    /**
+     * The cells that catch fire during the given tick.
+     *
+     * @param tick the tick in question
+     * @return an unmodifiable list of the cells that ignite on that tick
+     */
+    public List<Coordinate> cellsIgnitedAt(int tick) {
+        if (tick < 0 || tick >= cellsByTick.size()) return Collections.emptyList();
+        return cellsByTick.get(tick);
+    }
+
+    /**
+     * The last tick on which any cell ignites.
+     *
+     * @return the last tick on which any cell ignites
+     */
+    public int getLastTick() {
+        return cellsByTick.size() - 1;
+    }
+
+    /**
+     * Checks that replaying a trajectory is the same as simulating the fire live: with the same
+     * fire seed, Bot 2 must reach the same outcome and leave the same cells burning either way.
+     * Optionally takes a ship size and a number of seeds.
+     *
+     * @param args the ship size and the number of seeds per q-value
+     */
+    public static void main(String[] args) {
+        int shipSize = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        for (double q : new double[]{0.2, 0.5, 0.8}) {
+            int wins = 0;
+            for (int i = 0; i < runs; i++) {
+                RandomSource random = RandomSource.seeded(RandomSource.mixSeed(shipSize, Double.doubleToLongBits(q), i));
+                ShipMap ship = new ShipMap(shipSize, q, random.split());
+                long fireSeed = random.nextLong();
+                long botSeed = random.nextLong();
+
+                ShipMap liveShip = ship.copyState();
+                Simulation live = new Simulation(liveShip, RandomSource.seeded(fireSeed));
+                boolean liveWin = live.run(BotType.BOT2.create(liveShip, RandomSource.seeded(botSeed)));
+
+                FireTrajectory trajectory = new FireTrajectory(ship, RandomSource.seeded(fireSeed));
+                ShipMap replayShip = ship.copyState();
+                Simulation replay = new Simulation(replayShip, RandomSource.unseeded());
+                boolean replayWin = replay.run(BotType.BOT2.create(replayShip, RandomSource.seeded(botSeed)), trajectory);
+
+                if (liveWin != replayWin || !liveShip.getFireCells().equals(replayShip.getFireCells()))
+                    throw new IllegalStateException("Replay differs from the live fire at q = " + q + ", run " + i);
+                if (liveWin) wins++;
+            }
+            System.out.println("q = " + q + ": " + wins + "/" + runs + " wins, replay matches the live fire");
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.introai;
+
+/**
+ * Breadth-first search over a ship as bit operations. The cells reached so far and the current
+ * frontier are row-major bitboards, so one expansion step moves the whole frontier to its
+ * neighbors with four shifts and a mask per 64 cells, with no per-cell work at all. Each call
+ * to expand adds the next distance layer.
+ * <p>
+ * The fill sees the ship as it was when the fill was created; fire that spreads afterward is
+ * not taken into account.
+ */
+public final class FloodFill {
+    private final int size;
+    private final long[] passable;
+    private final long[] lowY;
+    private final long[] highY;
+    private final long[] reached;
+    private long[] frontier;
+    private long[] next;
+    private int low;
+    private int high;
+    private int distance;
+
+    /**
+     * Starts a fill from one cell. The start is reached at distance 0 even if it is burning.
+     *
+     * @param shipMap the ship's state
+     * @param start the cell to fill from
+     */
+    public FloodFill(ShipMap shipMap, Coordinate start) {
+        ShipLayout layout = shipMap.getLayout();
+        this.size = layout.getSize();
+        this.passable = shipMap.passableBoard();
+        this.lowY = layout.lowYBoard();
+        this.highY = layout.highYBoard();
+        this.reached = new long[passable.length];
+        this.frontier = new long[passable.length];
+        this.next = new long[passable.length];
+        if (start.isInBounds(size, size)) {
+            int bit = bitOf(start);
+            reached[bit >>> 6] |= 1L << bit;
+            frontier[bit >>> 6] |= 1L << bit;
+            low = high = bit >>> 6;
+        } else {
+            low = 0;
+            high = -1;
+        }
+    }
+
+    /**
+     * Reaches every passable cell one step beyond the current frontier.
+     *
+     * @return true if any new cell was reached, otherwise false
+     */
+    public boolean expand() {
+        // Only words within one shift of the frontier's words can change
+        int reach = (size >>> 6) + 1;
+        int from = Math.max(0, low - reach);
+        int to = Math.min(frontier.length - 1, high + reach);
+        int newLow = Integer.MAX_VALUE;
+        int newHigh = -1;
+        for (int i = from; i <= to; i++) {
+            // Moving along y is a shift by 1, which must not wrap from one x to the next
+            long up = shiftedLeft(frontier, i, 1) & ~lowY[i];
+            long down = shiftedRight(frontier, i, 1) & ~highY[i];
+            long right = shiftedLeft(frontier, i, size);
+            long left = shiftedRight(frontier, i, size);
+            long word = (up | down | right | left) & passable[i] & ~reached[i];
+            next[i] = word;
+            if (word != 0) {
+                newLow = Math.min(newLow, i);
+                newHigh = i;
+            }
+        }
+        if (newHigh < 0) return false;
+        for (int i = from; i <= to; i++) reached[i] |= next[i];
+        // The old frontier's words outside the new window must not linger in the next pass
+        for (int i = low; i <= high; i++) frontier[i] = 0;
+        long[] swap = frontier;
+        frontier = next;
+        next = swap;
+        low = newLow;
+        high = newHigh;
+        distance++;
+        return true;
+    }
+
+    /**
+     * Expands until a cell is reached or no new cells can be. If the cell is reached during
+     * this call, getDistance() is its distance from the start afterward.
+     *
+     * @param target the cell to reach
+     * @return true if the target has been reached, otherwise false
+     */
+    public boolean expandUntil(Coordinate target) {
+        while (!hasReached(target)) {
+            if (!expand()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Word i of a bitboard shifted toward higher bits.
+     *
+     * @param board the bitboard
+     * @param i the word's position
+     * @param shift how many bits to shift by
+     * @return the shifted word
+     */
+    private static long shiftedLeft(long[] board, int i, int shift) {
+        int source = i - (shift >>> 6);
+        int bits = shift & 63;
+        long low = source >= 0 ? board[source] : 0;
+        if (bits == 0) return low;
+        long carry = source - 1 >= 0 ? board[source - 1] : 0;
+        return (low << bits) | (carry >>> (Long.SIZE - bits));
+    }
+
+    /**
+     * Word i of a bitboard shifted toward lower bits.
+     *
+     * @param board the bitboard
+     * @param i the word's position
+     * @param shift how many bits to shift by
+     * @return the shifted word
+     */
+    private static long shiftedRight(long[] board, int i, int shift) {
+        int source = i + (shift >>> 6);
+        int bits = shift & 63;
+        long high = source < board.length ? board[source] : 0;
+        if (bits == 0) return high;
+        long carry = source + 1 < board.length ? board[source + 1] : 0;
+        return (high >>> bits) | (carry << (Long.SIZE - bits));
+    }
+
+    private int bitOf(Coordinate cell) {
+        return cell.getX() * size + cell.getY();
+    }
+
+    /**
+     * Detects whether the fill has reached a cell.
+     *
+     * @param cell the cell in question
+     * @return true if the cell has been reached, otherwise false
+     */
+    public boolean hasReached(Coordinate cell) {
+        if (!cell.isInBounds(size, size)) return false;
+        int bit = bitOf(cell);
+        return (reached[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Detects whether a cell was reached by the latest expansion, which means its distance
+     * from the start is exactly getDistance().
+     *
+     * @param cell the cell in question
+     * @return true if the cell is on the frontier, otherwise false
+     */
+    public boolean isOnFrontier(Coordinate cell) {
+        if (!cell.isInBounds(size, size)) return false;
+        int bit = bitOf(cell);
+        return (frontier[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * The distance of the current frontier from the start.
+     *
+     * @return how many times the fill has expanded
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * The number of cells reached so far, including the start.
+     *
+     * @return the number of reached cells
+     */
+    public int getReachedCount() {
+        int count = 0;
+        for (long word : reached) count += Long.bitCount(word);
+        return count;
+    }
+}
@@ -0,0 +1,80 @@
+package org.introai;
+
+/**
+ * Supplies the uniform roll that decides whether each cell ignites during one fire rollout.
+ * Rolls are computed from a seed and the cell's index rather than drawn in sequence, so the
+ * same cell can be given related rolls in different rollouts: mirrored in antithetic pairs,
+ * or evenly spread across a batch by a randomly shifted rank-1 lattice. Either way each
+ * single roll is still uniform on [0, 1), so estimates stay unbiased.
+ */
+public interface IgnitionRolls {
+    /**
+     * The roll for a cell in this rollout.
+     *
+     * @param index the cell's index
+     * @return a uniform value in [0, 1)
+     */
+    double roll(int index);
+
+    /**
+     * Rolls for one member of an antithetic pair. Rollouts 2k and 2k + 1 share a base roll u
+     * for each cell and use u and its mirror image respectively. The mirror is taken about the
+     * largest double below 1 rather than 1 itself, which keeps it in [0, 1): u is a multiple
+     * of 2^-53, so the subtraction is exact and never negative.
+     *
+     * @param seed identifies the batch
+     * @param rollout the rollout's position in the batch
+     * @return the rollout's rolls
+     */
+    static IgnitionRolls antithetic(long seed, int rollout) {
+        long pairSeed = RandomSource.mixSeed(seed, rollout / 2);
+        if ((rollout & 1) == 0) return index -> uniform(pairSeed, index);
+        return index -> Math.nextDown(1.0) - uniform(pairSeed, index);
+    }
+
+    /**
+     * Rolls for one point of a randomly shifted rank-1 lattice. Each cell is a dimension with
+     * its own generator, coprime to the number of points, and its own random shift, so across
+     * the batch every cell's rolls land exactly one in each interval [j / points, (j + 1) / points).
+     *
+     * @param seed identifies the batch
+     * @param point the rollout's position in the batch
+     * @param points the number of rollouts in the batch
+     * @return the rollout's rolls
+     */
+    static IgnitionRolls lattice(long seed, int point, int points) {
+        if (points < 1 || point < 0 || point >= points)
+            throw new IllegalArgumentException("Point " + point + " is not in a lattice of " + points);
+        long generatorSeed = RandomSource.mixSeed(seed, 1);
+        long shiftSeed = RandomSource.mixSeed(seed, 2);
+        return index -> {
+            int generator = 1;
+            if (points > 1) {
+                generator = 1 + (int) Long.remainderUnsigned(RandomSource.mix64(generatorSeed + index), points - 1);
+                while (gcd(generator, points) != 1) generator = generator % (points - 1) + 1;
+            }
+            double value = (double) ((long) point * generator % points) / points + uniform(shiftSeed, index);
+            return value >= 1 ? value - 1 : value;
+        };
+    }
+
+    /**
+     * A uniform value determined by a seed and a cell index.
+     *
+     * @param seed the stream's seed
+     * @param index the cell's index
+     * @return a uniform value in [0, 1)
+     */
+    private static double uniform(long seed, int index) {
+        return (RandomSource.mix64(seed + index * 0x9E3779B97F4A7C15L) >>> 11) * 0x1.0p-53;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
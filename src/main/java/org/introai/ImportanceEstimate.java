@@ -0,0 +1,94 @@
+package org.introai;
+
+/**
+ * A win-rate estimate built from runs whose fire was sampled at a tilted flammability and
+ * reweighted by each run's likelihood ratio.
+ * <p>
+ * When the tilt makes fires spread faster, losses become common and the rare event at the
+ * true flammability is a loss, so the win rate is estimated as one minus the weighted loss
+ * rate. When the tilt makes fires slower, wins are estimated directly. Either way the
+ * estimate is unbiased; only its variance depends on how well the tilt matches the rare event.
+ */
+public class ImportanceEstimate {
+    private static final double Z_95 = 1.959963984540054;
+
+    private final boolean tiltedTowardLosses;
+    private long runs;
+    private double sumWeights;
+    private double sumSquaredWeights;
+    private double sumRareWeights;
+    private double sumSquaredRareWeights;
+
+    /**
+     * Creates an empty estimate.
+     *
+     * @param flammability the flammability the win rate is estimated at
+     * @param samplingFlammability the flammability the fire was sampled at
+     */
+    public ImportanceEstimate(double flammability, double samplingFlammability) {
+        this.tiltedTowardLosses = samplingFlammability > flammability;
+    }
+
+    /**
+     * Adds one run.
+     *
+     * @param won whether the bot reached the goal
+     * @param likelihoodRatio the run's likelihood ratio from Simulation.getLikelihoodRatio
+     */
+    public void add(boolean won, double likelihoodRatio) {
+        runs++;
+        sumWeights += likelihoodRatio;
+        sumSquaredWeights += likelihoodRatio * likelihoodRatio;
+        if (won != tiltedTowardLosses) {
+            sumRareWeights += likelihoodRatio;
+            sumSquaredRareWeights += likelihoodRatio * likelihoodRatio;
+        }
+    }
+
+    /**
+     * The estimated probability of winning at the true flammability.
+     *
+     * @return the estimated win rate
+     */
+    public double getWinRate() {
+        if (runs == 0) return Double.NaN;
+        double rareRate = sumRareWeights / runs;
+        return tiltedTowardLosses ? 1 - rareRate : rareRate;
+    }
+
+    /**
+     * Half the width of a normal-approximation 95% confidence interval around the win rate.
+     *
+     * @return the margin of error of getWinRate
+     */
+    public double getConfidenceHalfWidth() {
+        if (runs < 2) return Double.NaN;
+        double mean = sumRareWeights / runs;
+        double variance = (sumSquaredRareWeights - runs * mean * mean) / (runs - 1);
+        return Z_95 * Math.sqrt(Math.max(0, variance) / runs);
+    }
+
+    /**
+     * How many unweighted runs the weighted runs are worth. A value far below getRuns means
+     * a few runs carry most of the weight and the tilt is too strong.
+     *
+     * @return Kish's effective sample size
+     */
+    public double getEffectiveSampleSize() {
+        if (sumSquaredWeights == 0) return 0;
+        return sumWeights * sumWeights / sumSquaredWeights;
+    }
+
+    /**
+     * The average likelihood ratio, which should be close to 1 when the estimate is healthy.
+     *
+     * @return the mean weight
+     */
+    public double getMeanWeight() {
+        return runs == 0 ? Double.NaN : sumWeights / runs;
+    }
+
+    public long getRuns() {
+        return runs;
+    }
+}
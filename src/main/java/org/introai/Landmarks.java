@@ -0,0 +1,148 @@
+package org.introai;
+
+import java.util.Arrays;
+
+/**
+ * Exact maze distances from a few landmark cells, used for ALT (A*, landmarks, triangle
+ * inequality) lower bounds. For any landmark L, the path distance between two cells is at
+ * least |d(L, a) - d(L, b)|, which in winding mazes is often several times the Manhattan
+ * distance. Distances are measured on the bare layout; burning cells only make paths longer,
+ * so the bounds stay admissible however far the fire spreads.
+ * <p>
+ * Landmarks are chosen by farthest-point selection: each new landmark is the open cell
+ * farthest from every landmark chosen so far, which spreads them around the edges of the
+ * maze where their bounds are tightest.
+ * <p>
+ * Choosing and measuring landmarks costs one breadth-first search per landmark, so they pay
+ * off on layouts that are searched many times: long runs, shared layouts, and tree search.
+ */
+public final class Landmarks {
+    /** How many landmarks ShipLayout.getLandmarks chooses. */
+    public static final int DEFAULT_COUNT = Integer.getInteger("search.landmarkCount", 8);
+
+    private static final int UNREACHABLE = -1;
+
+    private final int[] landmarks;
+    // Distances by cell, then by landmark, so one bound reads a single cache line
+    private final int[] distances;
+
+    /**
+     * Chooses landmarks on a layout and measures the distance from each to every cell.
+     *
+     * @param layout the maze
+     * @param count how many landmarks to choose; fewer are chosen if the layout has fewer open cells
+     */
+    public Landmarks(ShipLayout layout, int count) {
+        if (count < 1) throw new IllegalArgumentException("Landmark count must be at least 1, not " + count);
+        int chosen = Math.min(count, layout.getOpenCount());
+        this.landmarks = new int[chosen];
+        this.distances = new int[layout.getCellCount() * chosen];
+        if (chosen == 0) return;
+
+        // The cell farthest from an arbitrary start is the first landmark
+        int[] nearest = distancesFrom(layout, layout.openIndex(0));
+        for (int k = 0; k < chosen; k++) {
+            int farthest = farthestCell(layout, nearest);
+            landmarks[k] = farthest;
+            int[] fromLandmark = distancesFrom(layout, farthest);
+            for (int index = 0; index < fromLandmark.length; index++) {
+                distances[index * chosen + k] = fromLandmark[index];
+                nearest[index] = k == 0 ? fromLandmark[index] : Math.min(nearest[index], fromLandmark[index]);
+            }
+        }
+    }
+
+    /**
+     * Measures the distance from one cell to every cell by breadth-first search over the
+     * layout's open cells.
+     *
+     * @param layout the maze
+     * @param start the index of the starting cell
+     * @return the distance to each cell by index, or UNREACHABLE
+     */
+    private static int[] distancesFrom(ShipLayout layout, int start) {
+        int[] distance = new int[layout.getCellCount()];
+        Arrays.fill(distance, UNREACHABLE);
+        int[] queue = new int[layout.getOpenCount()];
+        int head = 0;
+        int tail = 0;
+        distance[start] = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int curr = queue[head++];
+            for (int direction = 0; direction < ShipMap.DIRECTIONS; direction++) {
+                int neighbor = layout.neighborIndex(curr, direction);
+                if (neighbor < 0 || distance[neighbor] != UNREACHABLE || !layout.isOpen(neighbor)) continue;
+                distance[neighbor] = distance[curr] + 1;
+                queue[tail++] = neighbor;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Finds the reachable open cell with the largest distance, breaking ties by index.
+     *
+     * @param layout the maze
+     * @param distance a distance for each cell by index
+     * @return the index of the farthest cell
+     */
+    private static int farthestCell(ShipLayout layout, int[] distance) {
+        int farthest = layout.openIndex(0);
+        for (int i = 0; i < layout.getOpenCount(); i++) {
+            int index = layout.openIndex(i);
+            if (distance[index] > distance[farthest]) farthest = index;
+        }
+        return farthest;
+    }
+
+    /**
+     * The landmark distances from a cell, for use as the target of repeated lowerBound calls.
+     *
+     * @param index the cell's index
+     * @return the distance from each landmark to the cell
+     */
+    public int[] distancesTo(int index) {
+        int count = landmarks.length;
+        return Arrays.copyOfRange(distances, index * count, index * count + count);
+    }
+
+    /**
+     * A lower bound on the path distance between two cells.
+     *
+     * @param index the index of one cell
+     * @param targetDistances the other cell's distances, from distancesTo
+     * @return the largest landmark bound, or 0 if no landmark reaches both cells
+     */
+    public int lowerBound(int index, int[] targetDistances) {
+        int count = landmarks.length;
+        int base = index * count;
+        int bound = 0;
+        for (int k = 0; k < count; k++) {
+            int from = distances[base + k];
+            int to = targetDistances[k];
+            if (from == UNREACHABLE || to == UNREACHABLE) continue;
+            bound = Math.max(bound, Math.abs(from - to));
+        }
+        return bound;
+    }
+
+    /**
+     * The number of landmarks.
+     *
+     * @return how many landmarks were chosen
+     */
+    public int getCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * A landmark's cell.
+     *
+     * @param k the landmark, from 0 to getCount() - 1
+     * @return the index of the landmark's cell
+     */
+    public int getLandmark(int k) {
+        return landmarks[k];
+    }
+}
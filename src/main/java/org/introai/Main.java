@@ -1,76 +1,349 @@
 package org.introai;
 
 import org.introai.bots.*;
+import org.introai.sweep.MetricsServer;
+import org.introai.sweep.ResultCache;
+import org.introai.sweep.ShardCoordinator;
+import org.introai.sweep.SweepMetrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
 public class Main {
+    private static final int SHIP_SIZE = 50;
+    private static final int RUNS = 200;
+    private static final double Q_START = 0.1;
+    private static final double Q_INTERVAL = 0.1;
+    private static final double COUPLED_Q_INTERVAL = 0.01;
+    private static final int ANALYTICS_LAYOUTS = 8;
+    private static final double ANALYTICS_Q = 0.5;
+    private static final double DEFAULT_TILT = 0.05;
+    private static final long SEED = Long.getLong("seed", System.nanoTime());
+
     /**
      * Caries out multiple simulations at multiple q-values for each bot.
+     * Pass "paired" to evaluate every bot against the same fire on each ship, or "coupled" to
+     * evaluate every bot against coupled fires over a fine grid of q-values. Pass "sharded",
+     * optionally followed by a number of worker processes and a number of runs per shard, to split
+     * the standard sweep across several JVMs; workers on other machines can join through the
+     * "shard.bindAddress" and "shard.port" system properties described in ShardCoordinator. Pass
+     * "analytics", optionally followed by a number of runs per layout, to write per-cell heatmaps
+     * for every bot on a fixed corpus of layouts into the directory named by the "analytics.dir"
+     * system property. Pass "importance", optionally followed by a tilt, to estimate win rates with
+     * importance sampling, which needs far fewer runs where wins or losses are rare. Pass "batch"
+     * to run the standard sweep for Bot 1 and for a bot that only replans when its path is blocked,
+     * with the lockstep batch engine. Every run is seeded from the "seed" system property, so a
+     * sweep can be repeated exactly by passing the seed it prints. If the "metrics.port" system
+     * property is set, live progress counters are served on that port while the sweep runs. If the
+     * "results.cache" system property names a file, the standard sweep reads and records run
+     * outcomes there and only simulates runs it has not seen. Every mode but "batch" evaluates the
+     * bots chosen by the "sweep.bots" system property; Bot 5 is only included when it is named
+     * there.
      */
-    public static void main(String[] args) {
-        final int SHIP_SIZE = 50;
-        final int RUNS = 200;
-        final double Q_START = 0.1;
-        final double Q_INTERVAL = 0.1;
-        double q;
-
-        q = Q_START;
-        System.out.println("Bot 1 @ size " + SHIP_SIZE);
-        while (q <= 1.005) {
-            int wins = 0;
+    public static void main(String[] args) throws IOException {
+        String mode = args.length > 0 ? args[0] : "standard";
+        System.out.println("Seed: " + SEED);
+        MetricsServer metricsServer = MetricsServer.startIfConfigured();
+        try {
+            switch (mode) {
+                case "paired" -> pairedSweep();
+                case "coupled" -> coupledSweep();
+                case "sharded" -> shardedSweep(args.length > 1 ? Integer.parseInt(args[1]) :
+                                Runtime.getRuntime().availableProcessors(),
+                        args.length > 2 ? Integer.parseInt(args[2]) : RUNS / 4);
+                case "importance" -> importanceSweep(args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_TILT);
+                case "analytics" -> analyticsSweep(args.length > 1 ? Integer.parseInt(args[1]) : RUNS * 5);
+                case "batch" -> batchSweep();
+                default -> standardSweep();
+            }
+        } finally {
+            if (metricsServer != null) metricsServer.close();
+        }
+    }
 
-            for (int i = 0; i < RUNS; i++) {
-                Simulation sim = new Simulation(SHIP_SIZE, q);
-                Bot bot = new Bot1(sim.getShipMap());
-                boolean result = sim.run(bot);
-                if (result) wins += 1;
+    /**
+     * Runs each bot on its own freshly generated ships and fires. With a result cache, runs
+     * whose layout, seed, bot version, and q are already cached are not simulated again.
+     *
+     * @throws IOException if the result cache cannot be read or written
+     */
+    private static void standardSweep() throws IOException {
+        try (ResultCache cache = ResultCache.openIfConfigured()) {
+            standardSweep(cache);
+            if (cache != null)
+                System.out.println("Result cache: " + cache.getHits() + " runs reused, " +
+                        cache.getMisses() + " simulated");
+        }
+    }
+
+    /**
+     * Runs each bot on its own freshly generated ships and fires.
+     *
+     * @param cache where run outcomes are looked up and recorded, or null to simulate every run
+     * @throws IOException if the result cache cannot be written
+     */
+    private static void standardSweep(ResultCache cache) throws IOException {
+        double[] qValues = standardQValues();
+        SweepMetrics metrics = SweepMetrics.global();
+        BotType[] botTypes = BotType.forSweep();
+        AtomicLong remaining = new AtomicLong((long) botTypes.length * qValues.length * RUNS);
+        metrics.setQueueDepth("remaining_runs", remaining::get);
+        for (BotType botType : botTypes) {
+            System.out.println(botType.getDisplayName() + " @ size " + SHIP_SIZE);
+            for (int qi = 0; qi < qValues.length; qi++) {
+                double q = qValues[qi];
+                int wins = 0;
+
+                for (int i = 0; i < RUNS; i++) {
+                    long seed = RandomSource.mixSeed(SEED, botType.ordinal(), qi, i);
+                    boolean result = cache == null ? Simulation.runSeeded(botType, SHIP_SIZE, q, seed) :
+                            cache.runSeeded(botType, SHIP_SIZE, q, seed);
+                    if (result) wins += 1;
+                    metrics.recordRun(botType, q, result);
+                    remaining.decrementAndGet();
+                }
+                System.out.println("At q = " + q + ", wins = " + wins + "/" + RUNS + " = " + (double) wins / RUNS);
             }
-            System.out.println("At q = " + q + ", wins = " + wins + "/" + RUNS + " = " + (double) wins / RUNS);
-            q += Q_INTERVAL;
         }
+    }
 
-        q = Q_START;
-        System.out.println("Bot 2 @ size " + SHIP_SIZE);
-        while (q <= 1.005) {
-            int wins = 0;
+    /**
+     * Runs the standard sweep with BatchSimulation for each of its policies, all runs at one q
+     * in a single batch. FOLLOW_PLAN is Bot 1, seeded as in the standard sweep, so it wins
+     * exactly the runs Bot 1 wins there and is recorded as Bot 1. REPLAN_WHEN_BLOCKED is not
+     * one of the bots, so it is reported and recorded under its own name; it is given the
+     * ships and fires Bot 2 gets in the standard sweep, for comparison.
+     */
+    private static void batchSweep() {
+        double[] qValues = standardQValues();
+        SweepMetrics metrics = SweepMetrics.global();
+        BatchSimulation.Policy[] policies = BatchSimulation.Policy.values();
+        AtomicLong remaining = new AtomicLong((long) policies.length * qValues.length * RUNS);
+        metrics.setQueueDepth("remaining_runs", remaining::get);
+        for (BatchSimulation.Policy policy : policies) {
+            boolean isBot1 = policy == BatchSimulation.Policy.FOLLOW_PLAN;
+            BotType seededAs = isBot1 ? BotType.BOT1 : BotType.BOT2;
+            String name = isBot1 ? BotType.BOT1.getDisplayName() : "Replan when blocked";
+            System.out.println(name + " @ size " + SHIP_SIZE + " (batched)");
+            for (int qi = 0; qi < qValues.length; qi++) {
+                double q = qValues[qi];
+                long[] seeds = new long[RUNS];
+                for (int i = 0; i < RUNS; i++) seeds[i] = RandomSource.mixSeed(SEED, seededAs.ordinal(), qi, i);
+                boolean[] results = BatchSimulation.runSeeded(policy, SHIP_SIZE, q, seeds);
+                int wins = 0;
+                for (boolean result : results) {
+                    if (result) wins += 1;
+                }
+                if (isBot1) metrics.recordRuns(BotType.BOT1, q, RUNS, wins);
+                else metrics.recordRuns(policy.name().toLowerCase(), q, RUNS, wins);
+                remaining.addAndGet(-RUNS);
+                System.out.println("At q = " + q + ", wins = " + wins + "/" + RUNS + " = " + (double) wins / RUNS);
+            }
+        }
+    }
+
+    /**
+     * Runs every bot on the same ships and the same fires. The fire on each ship is computed
+     * once by the event-driven engine and replayed for each bot, so differences between bots
+     * are not masked by differences between fires. Discordant pairs (one bot wins where the
+     * other loses) are reported for each pair of bots.
+     */
+    private static void pairedSweep() {
+        BotType[] botTypes = BotType.forSweep();
+        double[] qValues = standardQValues();
+        SweepMetrics metrics = SweepMetrics.global();
+        AtomicLong remaining = new AtomicLong((long) qValues.length * RUNS);
+        metrics.setQueueDepth("remaining_ships", remaining::get);
+        System.out.println("Paired evaluation @ size " + SHIP_SIZE);
+        for (int qi = 0; qi < qValues.length; qi++) {
+            double q = qValues[qi];
+            int[] wins = new int[botTypes.length];
+            int[][] onlyWins = new int[botTypes.length][botTypes.length];
 
             for (int i = 0; i < RUNS; i++) {
-                Simulation sim = new Simulation(SHIP_SIZE, q);
-                Bot bot = new Bot2(sim.getShipMap());
-                boolean result = sim.run(bot);
-                if (result) wins += 1;
+                RandomSource random = RandomSource.seeded(RandomSource.mixSeed(SEED, qi, i));
+                ShipMap ship = new ShipMap(SHIP_SIZE, q, random.split());
+                FireTrajectory trajectory = new EventFireEngine(ship, random.split()).run();
+                boolean[] results = new boolean[botTypes.length];
+                for (int b = 0; b < botTypes.length; b++) {
+                    Simulation sim = new Simulation(ship.copyState(), random.split());
+                    Bot bot = botTypes[b].create(sim.getShipMap(), random.split());
+                    results[b] = sim.run(bot, trajectory);
+                    if (results[b]) wins[b] += 1;
+                    metrics.recordRun(botTypes[b], q, results[b]);
+                }
+                remaining.decrementAndGet();
+                for (int a = 0; a < botTypes.length; a++)
+                    for (int b = 0; b < botTypes.length; b++)
+                        if (results[a] && !results[b]) onlyWins[a][b] += 1;
+            }
+
+            System.out.println("At q = " + q + ":");
+            for (int b = 0; b < botTypes.length; b++) {
+                System.out.println("  " + botTypes[b].getDisplayName() + " wins = " + wins[b] + "/" + RUNS +
+                        " = " + (double) wins[b] / RUNS);
+            }
+            for (int a = 0; a < botTypes.length; a++) {
+                for (int b = a + 1; b < botTypes.length; b++) {
+                    System.out.println("  " + botTypes[a].getDisplayName() + " vs " + botTypes[b].getDisplayName() +
+                            ": " + onlyWins[a][b] + " only " + botTypes[a].getDisplayName() + ", " +
+                            onlyWins[b][a] + " only " + botTypes[b].getDisplayName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs every bot on the same ships at every q-value on a fine grid. Each ship's fire is
+     * coupled across q-values: the same edge rolls drive every flammability, so fires only
+     * get faster as q increases and the resulting win-rate curves are smooth. The rolls are
+     * shared, but the fire is still computed in one EventFireEngine pass per q-value.
+     */
+    private static void coupledSweep() {
+        BotType[] botTypes = BotType.forSweep();
+        int qSteps = (int) Math.round((1.0 - Q_START) / COUPLED_Q_INTERVAL) + 1;
+        int[][] wins = new int[botTypes.length][qSteps];
+        SweepMetrics metrics = SweepMetrics.global();
+        AtomicLong remaining = new AtomicLong(RUNS);
+        metrics.setQueueDepth("remaining_ships", remaining::get);
+
+        for (int i = 0; i < RUNS; i++) {
+            RandomSource random = RandomSource.seeded(RandomSource.mixSeed(SEED, i));
+            ShipMap ship = new ShipMap(SHIP_SIZE, Q_START, random.split());
+            EventFireEngine engine = new EventFireEngine(ship, random.split());
+            for (int qi = 0; qi < qSteps; qi++) {
+                double q = Q_START + qi * COUPLED_Q_INTERVAL;
+                FireTrajectory trajectory = engine.run(q);
+                for (int b = 0; b < botTypes.length; b++) {
+                    Simulation sim = new Simulation(ship.copyState(q), random.split());
+                    Bot bot = botTypes[b].create(sim.getShipMap(), random.split());
+                    boolean result = sim.run(bot, trajectory);
+                    if (result) wins[b][qi] += 1;
+                    metrics.recordRun(botTypes[b], q, result);
+                }
+            }
+            remaining.decrementAndGet();
+        }
+
+        for (int b = 0; b < botTypes.length; b++) {
+            System.out.println(botTypes[b].getDisplayName() + " @ size " + SHIP_SIZE + " (coupled)");
+            for (int qi = 0; qi < qSteps; qi++) {
+                double q = Q_START + qi * COUPLED_Q_INTERVAL;
+                System.out.println("At q = " + q + ", wins = " + wins[b][qi] + "/" + RUNS + " = " +
+                        (double) wins[b][qi] / RUNS);
             }
-            System.out.println("At q = " + q + ", wins = " + wins + "/" + RUNS + " = " + (double) wins / RUNS);
-            q += Q_INTERVAL;
         }
+    }
 
-        q = Q_START;
-        System.out.println("Bot 3 @ size " + SHIP_SIZE);
-        while (q <= 1.005) {
-            int wins = 0;
+    /**
+     * Runs the standard sweep split into shards across worker JVMs and prints the merged totals.
+     *
+     * @param localWorkers how many worker processes to launch on this machine
+     * @param runsPerShard the most runs any one shard will contain
+     * @throws IOException if the coordinator cannot accept workers
+     */
+    private static void shardedSweep(int localWorkers, int runsPerShard) throws IOException {
+        BotType[] botTypes = BotType.forSweep();
+        double[] qValues = standardQValues();
+        ShardCoordinator coordinator = new ShardCoordinator(botTypes, qValues, SHIP_SIZE, RUNS, runsPerShard, SEED);
+        int[][] wins = coordinator.run(localWorkers);
 
-            for (int i = 0; i < RUNS; i++) {
-                Simulation sim = new Simulation(SHIP_SIZE, q);
-                Bot bot = new Bot3(sim.getShipMap());
-                boolean result = sim.run(bot);
-                if (result) wins += 1;
+        for (int b = 0; b < botTypes.length; b++) {
+            System.out.println(botTypes[b].getDisplayName() + " @ size " + SHIP_SIZE);
+            for (int qi = 0; qi < qValues.length; qi++) {
+                System.out.println("At q = " + qValues[qi] + ", wins = " + wins[b][qi] + "/" + RUNS + " = " +
+                        (double) wins[b][qi] / RUNS);
             }
-            System.out.println("At q = " + q + ", wins = " + wins + "/" + RUNS + " = " + (double) wins / RUNS);
-            q += Q_INTERVAL;
         }
+    }
 
-        q = Q_START;
-        System.out.println("Bot 4 @ size " + SHIP_SIZE);
-        while (q <= 1.005) {
-            int wins = 0;
+    /**
+     * Estimates each bot's win rate at each q with importance sampling. Where losses are the
+     * rare outcome (q up to 0.5), fire spreading toward the bot or goal is sampled at q + tilt
+     * so more runs are lost; above that, it is sampled at q - tilt so more runs are won. Each
+     * run is reweighted by its likelihood ratio, and the estimate is printed with a 95%
+     * confidence interval and the effective number of runs.
+     *
+     * @param tilt how far the sampling flammability is moved from q
+     */
+    private static void importanceSweep(double tilt) {
+        double[] qValues = standardQValues();
+        SweepMetrics metrics = SweepMetrics.global();
+        for (BotType botType : BotType.forSweep()) {
+            System.out.println(botType.getDisplayName() + " @ size " + SHIP_SIZE + " (importance sampled)");
+            for (int qi = 0; qi < qValues.length; qi++) {
+                double q = qValues[qi];
+                double samplingQ = q <= 0.5 ? Math.min(q + tilt, 0.99) : Math.max(q - tilt, 0.01);
+                ImportanceEstimate estimate = new ImportanceEstimate(q, samplingQ);
 
-            for (int i = 0; i < RUNS; i++) {
-                Simulation sim = new Simulation(SHIP_SIZE, q);
-                Bot bot = new Bot4(sim.getShipMap());
-                boolean result = sim.run(bot);
-                if (result) wins += 1;
+                for (int i = 0; i < RUNS; i++) {
+                    RandomSource random = RandomSource.seeded(RandomSource.mixSeed(SEED, botType.ordinal(), qi, i));
+                    ShipMap ship = new ShipMap(SHIP_SIZE, q, random.split());
+                    Simulation sim = new Simulation(ship, random.split(), samplingQ);
+                    boolean result = sim.run(botType.create(ship, random.split()));
+                    estimate.add(result, sim.getLikelihoodRatio());
+                    metrics.recordRun(botType, q, result);
+                }
+                System.out.printf("At q = %.2f, win rate = %.4f +/- %.4f (sampled at q = %.2f, %d runs, " +
+                                "effective %.1f, mean weight %.3f)%n", q, estimate.getWinRate(),
+                        estimate.getConfidenceHalfWidth(), samplingQ, estimate.getRuns(),
+                        estimate.getEffectiveSampleSize(), estimate.getMeanWeight());
             }
-            System.out.println("At q = " + q + ", wins = " + wins + "/" + RUNS + " = " + (double) wins / RUNS);
-            q += Q_INTERVAL;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs every bot many times on each layout of a fixed corpus, in parallel, and writes one
+     * heatmap file per layout and bot. Each run places the bot, goal, and fire afresh on the
+     * same shared layout.
+     *
+     * @param runsPerLayout how many runs each bot gets on each layout
+     * @throws IOException if a heatmap file cannot be written
+     */
+    private static void analyticsSweep(int runsPerLayout) throws IOException {
+        Path dir = Path.of(System.getProperty("analytics.dir", "analytics"));
+        Files.createDirectories(dir);
+        SweepMetrics metrics = SweepMetrics.global();
+        BotType[] botTypes = BotType.forSweep();
+        AtomicLong remaining = new AtomicLong((long) ANALYTICS_LAYOUTS * botTypes.length * runsPerLayout);
+        metrics.setQueueDepth("remaining_runs", remaining::get);
+        for (int layoutIndex = 0; layoutIndex < ANALYTICS_LAYOUTS; layoutIndex++) {
+            RandomSource layoutRandom = RandomSource.seeded(RandomSource.mixSeed(SEED, layoutIndex));
+            ShipLayout layout = ShipLayout.generate(SHIP_SIZE, layoutRandom);
+            for (BotType botType : botTypes) {
+                SpatialAnalytics analytics = new SpatialAnalytics(layout);
+                int finalLayout = layoutIndex;
+                IntStream.range(0, runsPerLayout).parallel().forEach(i -> {
+                    RandomSource random = RandomSource.seeded(
+                            RandomSource.mixSeed(SEED, finalLayout, botType.ordinal(), i));
+                    Simulation sim = new Simulation(new ShipMap(layout, ANALYTICS_Q, random.split()),
+                            random.split());
+                    sim.setAnalytics(analytics);
+                    boolean result = sim.run(botType.create(sim.getShipMap(), random.split()));
+                    metrics.recordRun(botType, ANALYTICS_Q, result);
+                    remaining.decrementAndGet();
+                });
+                Path file = dir.resolve("layout" + layoutIndex + "-" + botType.name().toLowerCase() + ".bin");
+                analytics.write(file);
+                SpatialAnalytics.Accumulator total = analytics.merge();
+                System.out.println(botType.getDisplayName() + " on layout " + layoutIndex + ": wins = " +
+                        total.getWins() + "/" + total.getRuns() + " -> " + file);
+            }
+        }
+    }
+
+    /**
+     * The q-values visited by the standard sweep.
+     *
+     * @return the q-values from Q_START up to 1.0 in steps of Q_INTERVAL
+     */
+    private static double[] standardQValues() {
+        ArrayList<Double> qValues = new ArrayList<>();
+        for (double q = Q_START; q <= 1.005; q += Q_INTERVAL) qValues.add(q);
+        return qValues.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+}
@@ -0,0 +1,95 @@
+package org.introai;
+
+/**
+ * Z-order (Morton) cell numbering. A cell's index interleaves the bits of its x and y
+ * coordinates, with x in the even bits and y in the odd bits, so cells that are close on the
+ * ship are usually close in memory too. Ships up to 32768 cells wide can be numbered.
+ */
+public class MortonOrder {
+    private static final int X_BITS = 0x55555555;
+    private static final int Y_BITS = 0xAAAAAAAA;
+    public static final int MAX_SIZE = 1 << 15;
+
+    /**
+     * The number of indices needed to number every cell on a ship of the given size.
+     *
+     * @param size the height and width of the ship
+     * @return the size of the smallest power-of-two square that contains the ship, squared
+     */
+    public static int capacity(int size) {
+        if (size < 0 || size > MAX_SIZE) throw new IllegalArgumentException("Unsupported ship size: " + size);
+        int side = Integer.highestOneBit(Math.max(1, size - 1)) << (size > 1 ? 1 : 0);
+        return side * side;
+    }
+
+    /**
+     * Interleaves a cell's coordinates into its Morton index.
+     *
+     * @param x the cell's x coordinate, between 0 and MAX_SIZE - 1
+     * @param y the cell's y coordinate, between 0 and MAX_SIZE - 1
+     * @return the cell's Morton index
+     */
+    public static int encode(int x, int y) {
+        return spread(x) | (spread(y) << 1);
+    }
+
+    public static int decodeX(int index) {
+        return compact(index);
+    }
+
+    public static int decodeY(int index) {
+        return compact(index >>> 1);
+    }
+
+    /*
+     * Neighbor steps work directly on the interleaved bits: filling the other coordinate's bits
+     * with ones lets a carry or borrow ripple straight through them. Stepping off the low edge
+     * wraps the coordinate to 0xFFFF, which callers reject with a bounds check.
+     */
+
+    public static int incrementX(int index) {
+        return (((index | Y_BITS) + 1) & X_BITS) | (index & Y_BITS);
+    }
+
+    public static int decrementX(int index) {
+        return (((index & X_BITS) - 1) & X_BITS) | (index & Y_BITS);
+    }
+
+    public static int incrementY(int index) {
+        return (((index | X_BITS) + 2) & Y_BITS) | (index & X_BITS);
+    }
+
+    public static int decrementY(int index) {
+        return (((index & Y_BITS) - 2) & Y_BITS) | (index & X_BITS);
+    }
+
+    /**
+     * Spreads the low 16 bits of a value into the even bits of the result.
+     *
+     * @param value the value to spread
+     * @return the value with a zero bit inserted above each of its bits
+     */
+    private static int spread(int value) {
+        value &= 0x0000FFFF;
+        value = (value | (value << 8)) & 0x00FF00FF;
+        value = (value | (value << 4)) & 0x0F0F0F0F;
+        value = (value | (value << 2)) & 0x33333333;
+        value = (value | (value << 1)) & 0x55555555;
+        return value;
+    }
+
+    /**
+     * Gathers the even bits of a value into its low 16 bits.
+     *
+     * @param value the value to compact
+     * @return the value's even bits, packed together
+     */
+    private static int compact(int value) {
+        value &= 0x55555555;
+        value = (value | (value >>> 1)) & 0x33333333;
+        value = (value | (value >>> 2)) & 0x0F0F0F0F;
+        value = (value | (value >>> 4)) & 0x00FF00FF;
+        value = (value | (value >>> 8)) & 0x0000FFFF;
+        return value;
+    }
+}
@@ -4,9 +4,9 @@ import java.util.Objects;
 
 public class PriorityCoordinate implements Comparable<PriorityCoordinate> {
     private final Coordinate coordinate;
-    private final int priority;
+    private final long priority;
 
-    public PriorityCoordinate(Coordinate coordinate, int priority) {
+    public PriorityCoordinate(Coordinate coordinate, long priority) {
         this.coordinate = coordinate;
         this.priority = priority;
     }
@@ -15,6 +15,10 @@ public class PriorityCoordinate implements Comparable<PriorityCoordinate> {
         return coordinate;
     }
 
+    public long getPriority() {
+        return priority;
+    }
+
     @Override
     public String toString() {
         return "[" + priority + ", " + coordinate + "]";
@@ -35,6 +39,6 @@ public class PriorityCoordinate implements Comparable<PriorityCoordinate> {
 
     @Override
     public int compareTo(PriorityCoordinate o) {
-        return this.priority - o.priority;
+        return Long.compare(this.priority, o.priority);
     }
 }
@@ -0,0 +1,191 @@
+package org.introai;
+
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * The source of every random decision in a simulation: ship layout, starting positions,
+ * and fire spread. A seeded source always produces the same sequence, so a run can be
+ * reproduced from its seed. Doubles and ints are generated in blocks so hot loops such as
+ * fire spread and ship creation pay for the generator call once per block rather than once
+ * per draw.
+ * <p>
+ * A RandomSource is not thread-safe. Give each simulation or worker its own, either by
+ * seeding it directly or by splitting it from a parent source.
+ */
+public class RandomSource {
+    public static final String DEFAULT_ALGORITHM = "L64X128MixRandom";
+    private static final int BLOCK_SIZE = 256;
+
+    private final RandomGeneratorFactory<RandomGenerator> factory;
+    private final RandomGenerator generator;
+    private final double[] doubleBlock;
+    private int doubleIndex;
+    private final int[] intBlock;
+    private int intIndex;
+
+    private RandomSource(RandomGeneratorFactory<RandomGenerator> factory, RandomGenerator generator) {
+        this.factory = factory;
+        this.generator = generator;
+        this.doubleBlock = new double[BLOCK_SIZE];
+        this.doubleIndex = BLOCK_SIZE;
+        this.intBlock = new int[BLOCK_SIZE];
+        this.intIndex = BLOCK_SIZE;
+    }
+
+    /**
+     * Creates a reproducible source using the algorithm named by the "random.algorithm"
+     * system property, or DEFAULT_ALGORITHM if it is not set.
+     *
+     * @param seed the seed
+     * @return a new source
+     */
+    public static RandomSource seeded(long seed) {
+        return of(System.getProperty("random.algorithm", DEFAULT_ALGORITHM), seed);
+    }
+
+    /**
+     * Creates a reproducible source using a specific algorithm.
+     *
+     * @param algorithm the name of a java.util.random algorithm, such as "L64X128MixRandom"
+     * @param seed the seed
+     * @return a new source
+     * @throws IllegalArgumentException if the algorithm is not available
+     */
+    public static RandomSource of(String algorithm, long seed) {
+        RandomGeneratorFactory<RandomGenerator> factory = RandomGeneratorFactory.of(algorithm);
+        return new RandomSource(factory, factory.create(seed));
+    }
+
+    /**
+     * Creates a source seeded from system entropy. Runs using it cannot be reproduced.
+     *
+     * @return a new source
+     */
+    public static RandomSource unseeded() {
+        RandomGeneratorFactory<RandomGenerator> factory =
+                RandomGeneratorFactory.of(System.getProperty("random.algorithm", DEFAULT_ALGORITHM));
+        return new RandomSource(factory, factory.create());
+    }
+
+    /**
+     * Combines several values into one well-mixed seed, so that a run can be identified by
+     * its coordinates in a sweep (base seed, bot, q, run number) rather than by its order.
+     *
+     * @param parts the values identifying the run
+     * @return a seed that depends on every part
+     */
+    public static long mixSeed(long... parts) {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (long part : parts) {
+            seed = mix64(seed ^ mix64(part + 0x9E3779B97F4A7C15L));
+        }
+        return seed;
+    }
+
+    /**
+     * The SplitMix64 finalizer.
+     *
+     * @param z the value to mix
+     * @return a value whose bits each depend on every bit of z
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Creates an independent child source. Splitting the same parent in the same order always
+     * produces the same children.
+     *
+     * @return a new source
+     */
+    public RandomSource split() {
+        if (generator instanceof RandomGenerator.SplittableGenerator splittable)
+            return new RandomSource(factory, splittable.split());
+        return new RandomSource(factory, factory.create(generator.nextLong()));
+    }
+
+    /**
+     * A uniform double in [0, 1), served from the current block.
+     *
+     * @return a uniform double in [0, 1)
+     */
+    public double nextDouble() {
+        if (doubleIndex == BLOCK_SIZE) {
+            fillDoubles(doubleBlock);
+            doubleIndex = 0;
+        }
+        return doubleBlock[doubleIndex++];
+    }
+
+    /**
+     * A uniform int in [0, bound), mapped without bias from the current int block.
+     *
+     * @param bound the exclusive upper bound, which must be positive
+     * @return a uniform int in [0, bound)
+     * @throws IllegalArgumentException if bound is not positive
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) throw new IllegalArgumentException("bound must be positive: " + bound);
+        int r = nextRawInt();
+        int m = bound - 1;
+        if ((bound & m) == 0) return r & m;
+        // Reject the top partial range of 31-bit values so every residue is equally likely
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextRawInt() >>> 1);
+        return r;
+    }
+
+    /**
+     * A uniform int in [origin, bound).
+     *
+     * @param origin the inclusive lower bound
+     * @param bound the exclusive upper bound, which must be greater than origin
+     * @return a uniform int in [origin, bound)
+     * @throws IllegalArgumentException if bound is not greater than origin
+     */
+    public int nextInt(int origin, int bound) {
+        if (origin >= bound)
+            throw new IllegalArgumentException("bound must be greater than origin: " + origin + ", " + bound);
+        return origin + nextInt(bound - origin);
+    }
+
+    private int nextRawInt() {
+        if (intIndex == BLOCK_SIZE) {
+            fillInts(intBlock);
+            intIndex = 0;
+        }
+        return intBlock[intIndex++];
+    }
+
+    public long nextLong() {
+        return generator.nextLong();
+    }
+
+    /**
+     * Fills an array with uniform doubles in [0, 1).
+     *
+     * @param block the array to fill
+     */
+    public void fillDoubles(double[] block) {
+        for (int i = 0; i < block.length; i++) {
+            block[i] = generator.nextDouble();
+        }
+    }
+
+    /**
+     * Fills an array with uniform ints over the whole int range.
+     *
+     * @param block the array to fill
+     */
+    public void fillInts(int[] block) {
+        for (int i = 0; i < block.length; i++) {
+            block[i] = generator.nextInt();
+        }
+    }
+
+    public String getAlgorithm() {
+        return factory.name();
+    }
+}
@@ -1,12 +1,17 @@
 package org.introai;
 
 import org.introai.bots.SearchResult;
+import org.introai.events.SearchEvent;
 
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.PriorityQueue;
 
 public class Search {
+    private static final double DANGER_PENALTY = 10.0;
+    // ALT bounds expand fewer nodes, but measuring them costs a few BFS passes per layout and
+    // they change which of several equally short paths is returned, so they are opt-in
+    private static final boolean USE_LANDMARKS = Boolean.getBoolean("search.landmarks");
 
     /**
      * Searches for the shortest path from the start to the goal.
@@ -18,155 +23,219 @@ public class Search {
      */
     public static SearchResult aStarSearch(Coordinate start, Coordinate goal,
                                            ShipMap shipMap) {
-        PriorityQueue<PriorityCoordinate> fringe = new PriorityQueue<>();
-        HashMap<Coordinate, Integer> distanceFromStart = new HashMap<>();
-        HashMap<Coordinate, Coordinate> parents = new HashMap<>();
-        boolean found = false;
-
-        distanceFromStart.put(start, 0);
-        fringe.add(new PriorityCoordinate(start, 0));
-        parents.put(start, null);
+        return aStar(start, goal, shipMap, CostModel.UNIT, "aStarSearch");
+    }
 
-        while (!fringe.isEmpty()) {
-            Coordinate curr = fringe.poll().getCoordinate();
-            if (curr.equals(goal)) {
-                found = true;
-                break;
+    /**
+     * Searches for the shortest path from the start to the goal. It attempts to avoid paths that might
+     * ignite by weighing cells that simulations suggest are dangerous more harshly.
+     *
+     * @param start the starting Coordinate
+     * @param goal the goal Coordinate
+     * @param dangerousCells a map of cells that have been simulated to be in danger of fire
+     * @param shipMap the ship's state
+     * @return a SearchObject containing the path found
+     */
+    public static SearchResult fireSimAStarSearch(Coordinate start, Coordinate goal,
+                                                  HashMap<Coordinate, Double> dangerousCells, ShipMap shipMap) {
+        CostModel danger = new CostModel() {
+            @Override
+            public long cost(Coordinate cell) {
+                return 1;
             }
 
-            Coordinate[] neighbors = shipMap.openNeighbors(curr);
-            for (Coordinate neighbor : neighbors) {
-                int tempDistance = distanceFromStart.get(curr) + 1;
-                if (!distanceFromStart.containsKey(neighbor) ||
-                        tempDistance < distanceFromStart.get(neighbor)) {
-                    distanceFromStart.put(neighbor, tempDistance);
-                    int priority = tempDistance + manhattanDistance(neighbor, goal);
-                    fringe.add(new PriorityCoordinate(neighbor, priority));
-                    parents.put(neighbor, curr);
-                }
+            // Danger only delays a cell in the fringe; the path's length is still its cost
+            @Override
+            public long penalty(Coordinate cell) {
+                Double probability = dangerousCells.get(cell);
+                return probability == null ? 0 : (int) (probability * DANGER_PENALTY);
             }
-        }
+        };
+        return aStar(start, goal, shipMap, danger, "fireSimAStarSearch");
+    }
 
-        if (!found) return null;
-        return new SearchResult(parents, distanceFromStart.get(goal), start, goal);
+    /**
+     * Searches for the cheapest path from the start to the goal under the given cost model.
+     * Costs are compared by tier first and weight second, so a single pass finds the path
+     * that enters the fewest undesirable cells and, among those, the lightest one.
+     *
+     * @param start the starting Coordinate
+     * @param goal the goal Coordinate
+     * @param shipMap the ship's state
+     * @param costModel the cost of stepping into each cell
+     * @return a SearchObject containing the path found, or null if the goal is unreachable
+     */
+    public static SearchResult aStar(Coordinate start, Coordinate goal, ShipMap shipMap, CostModel costModel) {
+        return aStar(start, goal, shipMap, costModel, "aStar");
     }
 
     /**
-     * Searches for the shortest path from the start to the goal. It completely avoids
-     * cells adjacent to tiles that are on fire.
-     * Returns an array of Coordinates containing that path.
+     * The A* loop shared by every search. Unit costs skip the cost model entirely so the
+     * plain shortest-path search does no per-neighbor virtual calls. Remaining distances are
+     * estimated with Manhattan distance, tightened with the layout's landmarks if the
+     * "search.landmarks" system property is true.
      *
      * @param start the starting Coordinate
      * @param goal the goal Coordinate
-     * @param shipMap
-     * @return a SearchObject containing the path found
+     * @param shipMap the ship's state
+     * @param costModel the cost of stepping into each cell
+     * @param searchType the name recorded in search events
+     * @return a SearchObject containing the path found, or null if the goal is unreachable
      */
-    public static SearchResult aStarSearchAvoidFire(Coordinate start, Coordinate goal,
-                                           ShipMap shipMap) {
+    private static SearchResult aStar(Coordinate start, Coordinate goal, ShipMap shipMap,
+                                      CostModel costModel, String searchType) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
         PriorityQueue<PriorityCoordinate> fringe = new PriorityQueue<>();
-        HashMap<Coordinate, Integer> distanceFromStart = new HashMap<>();
+        HashMap<Coordinate, Long> costFromStart = new HashMap<>();
         HashMap<Coordinate, Coordinate> parents = new HashMap<>();
-        HashSet<Coordinate> fireAdjacent = adjacentToFire(shipMap);
+        boolean unitCost = costModel == CostModel.UNIT;
+        Landmarks landmarks = USE_LANDMARKS ? shipMap.getLayout().getLandmarks() : null;
+        int[] goalDistances = landmarks == null ? null : landmarks.distancesTo(shipMap.cellIndex(goal));
+        int nodesExpanded = 0;
+        int maxFrontierSize = 0;
         boolean found = false;
 
-        distanceFromStart.put(start, 0);
+        costFromStart.put(start, 0L);
         fringe.add(new PriorityCoordinate(start, 0));
         parents.put(start, null);
 
         while (!fringe.isEmpty()) {
-            Coordinate curr = fringe.poll().getCoordinate();
+            maxFrontierSize = Math.max(maxFrontierSize, fringe.size());
+            PriorityCoordinate entry = fringe.poll();
+            Coordinate curr = entry.getCoordinate();
+            long currCost = costFromStart.get(curr);
+            // Skip entries left behind after a cheaper route to the cell was found
+            long currPenalty = unitCost ? 0 : costModel.penalty(curr);
+            if (entry.getPriority() > currCost + estimate(curr, goal, shipMap, landmarks, goalDistances) + currPenalty) {
+                continue;
+            }
             if (curr.equals(goal)) {
                 found = true;
                 break;
             }
+            nodesExpanded++;
 
             Coordinate[] neighbors = shipMap.openNeighbors(curr);
             for (Coordinate neighbor : neighbors) {
-                if (fireAdjacent.contains(neighbor)) {
-                    continue;
-                }
-                int tempDistance = distanceFromStart.get(curr) + 1;
-                if (!distanceFromStart.containsKey(neighbor) ||
-                        tempDistance < distanceFromStart.get(neighbor)) {
-                    distanceFromStart.put(neighbor, tempDistance);
-                    int priority = tempDistance + manhattanDistance(neighbor, goal);
+                long stepCost = unitCost ? 1 : costModel.cost(neighbor);
+                if (stepCost == CostModel.BLOCKED) continue;
+                long tempCost = currCost + stepCost;
+                Long neighborCost = costFromStart.get(neighbor);
+                if (neighborCost == null || tempCost < neighborCost) {
+                    costFromStart.put(neighbor, tempCost);
+                    long priority = tempCost + estimate(neighbor, goal, shipMap, landmarks, goalDistances)
+                            + (unitCost ? 0 : costModel.penalty(neighbor));
                     fringe.add(new PriorityCoordinate(neighbor, priority));
                     parents.put(neighbor, curr);
                 }
             }
         }
-        if (!found) return null;
-        return new SearchResult(parents, distanceFromStart.get(goal), start, goal);
+
+        SearchResult result = found ? new SearchResult(parents, start, goal) : null;
+        commitSearchEvent(event, searchType, nodesExpanded, maxFrontierSize, result);
+        return result;
     }
 
     /**
-     * Searches for the shortest path from the start to the goal. It attempts to avoid paths that might
-     * ignite by weighing cells that simulations suggest are dangerous more harshly.
+     * Records a completed search if search events are being recorded.
      *
+     * @param event the event that was started when the search began
+     * @param searchType the name of the search method
+     * @param nodesExpanded how many cells were expanded
+     * @param maxFrontierSize the largest size the fringe reached
+     * @param result the path found, or null if there was none
+     */
+    private static void commitSearchEvent(SearchEvent event, String searchType, int nodesExpanded,
+                                          int maxFrontierSize, SearchResult result) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.searchType = searchType;
+            event.nodesExpanded = nodesExpanded;
+            event.maxFrontierSize = maxFrontierSize;
+            event.pathLength = result == null ? -1 : result.getDistanceFromStartToEnd();
+            event.commit();
+        }
+    }
+
+    /**
+     * Detects whether a path from the start to the goal exists through open cells that are not
+     * burning. It uses a bitboard flood fill, which is far cheaper than a search that has to
+     * record the path.
+     *
+     * @param shipMap the ship's state
      * @param start the starting Coordinate
      * @param goal the goal Coordinate
-     * @param dangerousCells a map of cells that have been simulated to be in danger of fire
-     * @param shipMap the ship's state
-     * @return a SearchObject containing the path found
+     * @return true if the goal can be reached, otherwise false
      */
-    public static SearchResult fireSimAStarSearch(Coordinate start, Coordinate goal,
-                                                  HashMap<Coordinate, Double> dangerousCells, ShipMap shipMap) {
-        PriorityQueue<PriorityCoordinate> fringe = new PriorityQueue<>();
-        HashMap<Coordinate, Integer> distanceFromStart = new HashMap<>();
-        HashMap<Coordinate, Coordinate> parents = new HashMap<>();
-        final double DANGER_PENALTY = 10.0;
-        boolean found = false;
-
-        distanceFromStart.put(start, 0);
-        fringe.add(new PriorityCoordinate(start, 0));
-        parents.put(start, null);
+    public static boolean isReachable(ShipMap shipMap, Coordinate start, Coordinate goal) {
+        return new FloodFill(shipMap, start).expandUntil(goal);
+    }
 
-        while (!fringe.isEmpty()) {
-            Coordinate curr = fringe.poll().getCoordinate();
-            if (curr.equals(goal)) {
-                found = true;
-                break;
-            }
+    /**
+     * Finds the length of the shortest path from the start to the goal through open cells
+     * that are not burning, without finding the path itself.
+     *
+     * @param shipMap the ship's state
+     * @param start the starting Coordinate
+     * @param goal the goal Coordinate
+     * @return the number of moves on a shortest path, or -1 if the goal cannot be reached
+     */
+    public static int bfsDistance(ShipMap shipMap, Coordinate start, Coordinate goal) {
+        FloodFill fill = new FloodFill(shipMap, start);
+        return fill.expandUntil(goal) ? fill.getDistance() : -1;
+    }
 
-            Coordinate[] neighbors = shipMap.openNeighbors(curr);
-            for (Coordinate neighbor : neighbors) {
-                int tempDistance = distanceFromStart.get(curr) + 1;
-                if (!distanceFromStart.containsKey(neighbor) ||
-                        tempDistance < distanceFromStart.get(neighbor)) {
-                    distanceFromStart.put(neighbor, tempDistance);
-                    int priority = tempDistance + manhattanDistance(neighbor, goal);
-                    if (dangerousCells.containsKey(neighbor)) {
-                        int additionalPriority = (int) (dangerousCells.get(neighbor) * DANGER_PENALTY);
-                        priority += additionalPriority;
-                    }
-                    fringe.add(new PriorityCoordinate(neighbor, priority));
-                    parents.put(neighbor, curr);
+    /**
+     * Finds every cell the bot could reach from a starting cell in at most the given number
+     * of moves, walking only through open cells that are not burning. The search stops at
+     * maxDistance, so its cost depends on the size of the region rather than of the ship.
+     *
+     * @param shipMap the ship's state
+     * @param start the index of the starting cell, which is always in the result
+     * @param maxDistance the most moves allowed
+     * @return the indices of the reachable cells
+     */
+    public static BitSet reachableWithin(ShipMap shipMap, int start, int maxDistance) {
+        BitSet reached = new BitSet(shipMap.getCellCount());
+        // Each cell is queued at most once, so one array holds every layer back to back
+        int[] queue = new int[shipMap.getCellCount()];
+        int head = 0;
+        int tail = 0;
+        reached.set(start);
+        queue[tail++] = start;
+        for (int distance = 0; distance < maxDistance && head < tail; distance++) {
+            int layerEnd = tail;
+            while (head < layerEnd) {
+                int curr = queue[head++];
+                for (int direction = 0; direction < ShipMap.DIRECTIONS; direction++) {
+                    int neighbor = shipMap.neighborIndex(curr, direction);
+                    if (neighbor < 0 || reached.get(neighbor) || !shipMap.isOpen(neighbor)) continue;
+                    reached.set(neighbor);
+                    queue[tail++] = neighbor;
                 }
             }
         }
-
-        if (!found) return null;
-        return new SearchResult(parents, distanceFromStart.get(goal), start, goal);
+        return reached;
     }
 
     /**
-     * Finds all open cells that are adjacent to burning cells.
+     * A lower bound on the number of moves from a cell to the goal: the larger of the
+     * Manhattan distance and the landmark bound. Every step costs at least one, so it is
+     * admissible for every cost model.
      *
+     * @param cell the cell to estimate from
+     * @param goal the goal Coordinate
      * @param shipMap the ship's state
-     * @return a set of all open cells adjacent to burning cells
+     * @param landmarks the layout's landmarks, or null to use Manhattan distance alone
+     * @param goalDistances the landmark distances to the goal, or null without landmarks
+     * @return the estimated remaining distance
      */
-    private static HashSet<Coordinate> adjacentToFire(ShipMap shipMap) {
-        HashSet<Coordinate> fireCells = shipMap.getFireCells();
-        HashSet<Coordinate> openCells = shipMap.getOpenCells();
-        HashSet<Coordinate> adjacentToFireCells = new HashSet<>();
-
-        for (Coordinate cell : fireCells) {
-            Coordinate[] neighbors = {cell.getAbove(), cell.getBelow(), cell.getLeft(), cell.getRight()};
-            for (Coordinate neighbor : neighbors) {
-                if (openCells.contains(neighbor)) adjacentToFireCells.add(neighbor);
-            }
-        }
-        return adjacentToFireCells;
+    private static int estimate(Coordinate cell, Coordinate goal, ShipMap shipMap, Landmarks landmarks,
+                                int[] goalDistances) {
+        int manhattan = manhattanDistance(cell, goal);
+        if (landmarks == null) return manhattan;
+        return Math.max(manhattan, landmarks.lowerBound(shipMap.cellIndex(cell), goalDistances));
     }
 
     /**
@@ -177,8 +246,6 @@ public class Search {
      * @return the Manhattan distance between the two coordinates
      */
     private static int manhattanDistance(Coordinate coordinateA, Coordinate coordinateB) {
-        int[] a = coordinateA.toArray();
-        int[] b = coordinateB.toArray();
-        return Math.abs(a[0] - b[0]) + Math.abs(a[1] - b[1]);
+        return Math.abs(coordinateA.getX() - coordinateB.getX()) + Math.abs(coordinateA.getY() - coordinateB.getY());
     }
 }
@@ -6,22 +6,39 @@
 package org.introai;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.concurrent.ThreadLocalRandom;
 
 public class ShipCreator {
     private final int size;
     private final HashSet<Coordinate> openCells;
+    private final boolean[] isOpen;
+    private final RandomSource random;
+
+    // Closed cells with exactly one open neighbor, kept up to date as cells are opened
+    private final int[] openNeighborCounts;
+    private final int[] candidates;
+    private final int[] candidatePositions;
+    private int candidateCount;
 
     public ShipCreator(int size) {
+        this(size, RandomSource.unseeded());
+    }
+
+    public ShipCreator(int size, RandomSource random) {
         this.size = size;
+        this.random = random;
         this.openCells = new HashSet<>();
+        this.isOpen = new boolean[MortonOrder.capacity(size)];
+        this.openNeighborCounts = new int[this.isOpen.length];
+        this.candidates = new int[this.isOpen.length];
+        this.candidatePositions = new int[this.isOpen.length];
+        Arrays.fill(this.candidatePositions, -1);
     }
 
     public HashSet<Coordinate> generateShip() {
-        int startX = ThreadLocalRandom.current().nextInt(0, this.size);
-        int startY = ThreadLocalRandom.current().nextInt(0, this.size);
+        int startX = random.nextInt(0, this.size);
+        int startY = random.nextInt(0, this.size);
         initializeOpenCells(startX, startY);
         cullDeadEnds();
         return openCells;
@@ -29,33 +46,18 @@ public class ShipCreator {
 
     private void initializeOpenCells(int x, int y) {
         openCell(new Coordinate(x, y));
-        boolean openedACell;
-        do {
-            openedACell = false;
-            HashSet<Coordinate> candidates = findCandidates();
-            if (candidates.size() > 0) {
-                int i = 0;
-                int randomIndex = ThreadLocalRandom.current().nextInt(0, candidates.size());
-                Iterator<Coordinate> iterator = candidates.iterator();
-                Coordinate curr;
-                while (iterator.hasNext()) {
-                    curr = iterator.next();
-                    if (i == randomIndex) {
-                        openCell(curr);
-                        openedACell = true;
-                        break;
-                    }
-                    i++;
-                }
-            }
-        } while (openedACell);
+        while (candidateCount > 0) {
+            int randomIndex = random.nextInt(0, candidateCount);
+            int index = candidates[randomIndex];
+            openCell(new Coordinate(MortonOrder.decodeX(index), MortonOrder.decodeY(index)));
+        }
     }
 
     private void cullDeadEnds() {
         ArrayList<Coordinate> deadEnds = findDeadEnds();
         int numToRemove = deadEnds.size() / 2;
         while (deadEnds.size() > numToRemove) {
-            int cullIndex = ThreadLocalRandom.current().nextInt(deadEnds.size());
+            int cullIndex = random.nextInt(deadEnds.size());
             Coordinate cell = deadEnds.get(cullIndex);
             deadEnds.remove(cullIndex);
             Coordinate above = cell.getAbove();
@@ -63,24 +65,24 @@ public class ShipCreator {
             Coordinate right = cell.getRight();
             Coordinate left = cell.getLeft();
             ArrayList<Coordinate> candidates = new ArrayList<>();
-            if (above.isInBounds(size, size) && !this.openCells.contains(above))
+            if (above.isInBounds(size, size) && !isOpen(above))
                 candidates.add(above);
-            if (below.isInBounds(size, size) && !this.openCells.contains(below))
+            if (below.isInBounds(size, size) && !isOpen(below))
                 candidates.add(below);
-            if (right.isInBounds(size, size) && !this.openCells.contains(right))
+            if (right.isInBounds(size, size) && !isOpen(right))
                 candidates.add(right);
-            if (left.isInBounds(size, size) && !this.openCells.contains(left))
+            if (left.isInBounds(size, size) && !isOpen(left))
                 candidates.add(left);
             if (candidates.size() > 0) {
-                int openIndex = ThreadLocalRandom.current().nextInt(candidates.size());
-                this.openCells.add(candidates.get(openIndex));
+                int openIndex = random.nextInt(candidates.size());
+                openCell(candidates.get(openIndex));
             }
         }
     }
 
     private ArrayList<Coordinate> findDeadEnds() {
         ArrayList<Coordinate> result = new ArrayList<>();
-        for (Coordinate cell : this.openCells) {
+        for (Coordinate cell : openCellsInOrder()) {
             if (countOpenNeighbors(cell) == 1) {
                 result.add(cell);
             }
@@ -88,38 +90,72 @@ public class ShipCreator {
         return result;
     }
 
+    /**
+     * Opens a cell and updates the candidate list. Only the cell's four neighbors can gain or
+     * lose candidacy, so each opening costs O(1) instead of a rescan of the whole ship.
+     *
+     * @param cell the cell to open
+     */
     private void openCell(Coordinate cell) {
+        int[] xy = cell.toArray();
+        int index = MortonOrder.encode(xy[0], xy[1]);
         this.openCells.add(cell);
-    }
+        this.isOpen[index] = true;
+        removeCandidate(index);
 
-    private HashSet<Coordinate> findCandidates() {
-        HashSet<Coordinate> oneOpenNeighborCandidates = new HashSet<>();
-        for (Coordinate cell : this.openCells) {
-            int x = cell.toArray()[0];
-            int y = cell.toArray()[1];
-            if (x - 1 >= 0 && isCandidate(cell.getLeft()))
-                oneOpenNeighborCandidates.add(cell.getLeft());
-            if (x + 1 < size && isCandidate(cell.getRight()))
-                oneOpenNeighborCandidates.add(cell.getRight());
-            if (y - 1 >= 0 && isCandidate(cell.getBelow()))
-                oneOpenNeighborCandidates.add(cell.getBelow());
-            if (y + 1 < size && isCandidate(cell.getAbove()))
-                oneOpenNeighborCandidates.add(cell.getAbove());
+        Coordinate[] neighbors = {cell.getAbove(), cell.getBelow(), cell.getLeft(), cell.getRight()};
+        for (Coordinate neighbor : neighbors) {
+            if (!neighbor.isInBounds(size, size)) continue;
+            int[] neighborXY = neighbor.toArray();
+            int neighborIndex = MortonOrder.encode(neighborXY[0], neighborXY[1]);
+            openNeighborCounts[neighborIndex]++;
+            if (isOpen[neighborIndex]) continue;
+            if (openNeighborCounts[neighborIndex] == 1) addCandidate(neighborIndex);
+            else removeCandidate(neighborIndex);
         }
-        return oneOpenNeighborCandidates;
     }
 
-    private boolean isCandidate(Coordinate cell) {
-        if (this.openCells.contains(cell)) return false;
-        return countOpenNeighbors(cell) == 1;
+    private void addCandidate(int index) {
+        candidatePositions[index] = candidateCount;
+        candidates[candidateCount] = index;
+        candidateCount++;
+    }
+
+    private void removeCandidate(int index) {
+        int position = candidatePositions[index];
+        if (position < 0) return;
+        int last = candidates[candidateCount - 1];
+        candidates[position] = last;
+        candidatePositions[last] = position;
+        candidatePositions[index] = -1;
+        candidateCount--;
+    }
+
+    /**
+     * The open cells in Z-order, so that scans over them touch memory in spatially local runs.
+     *
+     * @return the open cells sorted by Morton index
+     */
+    private ArrayList<Coordinate> openCellsInOrder() {
+        ArrayList<Coordinate> result = new ArrayList<>(this.openCells.size());
+        for (int index = 0; index < this.isOpen.length; index++) {
+            if (this.isOpen[index]) result.add(new Coordinate(MortonOrder.decodeX(index), MortonOrder.decodeY(index)));
+        }
+        return result;
     }
 
     private int countOpenNeighbors(Coordinate cell) {
         int numOpenNeighbors = 0;
-        if (this.openCells.contains(cell.getAbove())) numOpenNeighbors++;
-        if (this.openCells.contains(cell.getBelow())) numOpenNeighbors++;
-        if (this.openCells.contains(cell.getLeft())) numOpenNeighbors++;
-        if (this.openCells.contains(cell.getRight())) numOpenNeighbors++;
+        if (isOpen(cell.getAbove())) numOpenNeighbors++;
+        if (isOpen(cell.getBelow())) numOpenNeighbors++;
+        if (isOpen(cell.getLeft())) numOpenNeighbors++;
+        if (isOpen(cell.getRight())) numOpenNeighbors++;
         return numOpenNeighbors;
     }
+
+    private boolean isOpen(Coordinate cell) {
+        if (!cell.isInBounds(size, size)) return false;
+        int[] xy = cell.toArray();
+        return this.isOpen[MortonOrder.encode(xy[0], xy[1])];
+    }
 }
@@ -0,0 +1,262 @@
+package org.introai;
+
+import java.util.HashSet;
+
+/**
+ * The fixed maze of a ship: which cells are open and how they connect. A layout never
+ * changes after it is built, so any number of ships on any number of threads can share one.
+ * Everything that changes during a run (fire, bot, goal) lives in ShipMap.
+ * <p>
+ * Cells are indexed in MortonOrder. The layout precomputes a shared Coordinate for every
+ * index, the index of each cell's neighbor in each direction, and the open cells in index
+ * order, so ships built on it do not have to. For FloodFill it also keeps the open cells as a
+ * row-major bitboard, where bit x * size + y is cell (x, y) and moving to a neighbor is a
+ * shift by 1 or by size.
+ */
+public final class ShipLayout {
+    // Salt shared with the ship's other Zobrist keys so layout hashes stay comparable
+    static final long LAYOUT_SALT = 0x6C61796F75744B65L;
+
+    private final int size;
+    private final long[] openBits;
+    private final int[] openIndices;
+    private final int[] neighbors;
+    private final Coordinate[] cells;
+    private final long layoutHash;
+    private final long[] openBoard;
+    private final long[] lowYBoard;
+    private final long[] highYBoard;
+    private volatile Landmarks landmarks;
+
+    /**
+     * Builds a layout from a set of open cells.
+     *
+     * @param size the height and width of the ship
+     * @param openCells the open cells, as produced by ShipCreator; the set is not kept
+     */
+    public ShipLayout(int size, HashSet<Coordinate> openCells) {
+        this.size = Math.abs(size);
+        int capacity = MortonOrder.capacity(this.size);
+        this.openBits = new long[(capacity + Long.SIZE - 1) / Long.SIZE];
+        this.cells = new Coordinate[capacity];
+        for (int index = 0; index < capacity; index++) {
+            cells[index] = new Coordinate(MortonOrder.decodeX(index), MortonOrder.decodeY(index));
+        }
+        for (Coordinate cell : openCells) {
+            if (!cell.isInBounds(this.size, this.size))
+                throw new IllegalArgumentException(cell + " is outside a ship of size " + this.size);
+            int index = MortonOrder.encode(cell.getX(), cell.getY());
+            openBits[index >>> 6] |= 1L << index;
+        }
+
+        this.openIndices = new int[openCells.size()];
+        this.neighbors = new int[capacity * ShipMap.DIRECTIONS];
+        long hash = 0;
+        int i = 0;
+        for (int index = 0; index < capacity; index++) {
+            if (isOpen(index)) {
+                openIndices[i++] = index;
+                hash ^= ShipMap.zobristKey(LAYOUT_SALT, index);
+            }
+            for (int direction = 0; direction < ShipMap.DIRECTIONS; direction++) {
+                neighbors[index * ShipMap.DIRECTIONS + direction] = computeNeighbor(index, direction);
+            }
+        }
+        this.layoutHash = hash;
+
+        int boardWords = (this.size * this.size + Long.SIZE - 1) / Long.SIZE;
+        this.openBoard = new long[boardWords];
+        this.lowYBoard = new long[boardWords];
+        this.highYBoard = new long[boardWords];
+        for (int x = 0; x < this.size; x++) {
+            for (int y = 0; y < this.size; y++) {
+                int bit = x * this.size + y;
+                if (isOpen(MortonOrder.encode(x, y))) openBoard[bit >>> 6] |= 1L << bit;
+                if (y == 0) lowYBoard[bit >>> 6] |= 1L << bit;
+                if (y == this.size - 1) highYBoard[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+
+    /**
+     * Generates a new layout with ShipCreator.
+     *
+     * @param size the height and width of the ship
+     * @param random the source of the layout
+     * @return a new layout
+     */
+    public static ShipLayout generate(int size, RandomSource random) {
+        return new ShipLayout(size, new ShipCreator(Math.abs(size), random).generateShip());
+    }
+
+    /**
+     * Finds a neighbor's index from the index arithmetic of MortonOrder.
+     *
+     * @param index a cell's index
+     * @param direction ABOVE, BELOW, LEFT, or RIGHT
+     * @return the neighbor's index, or -1 if the neighbor is outside the ship
+     */
+    private int computeNeighbor(int index, int direction) {
+        int neighbor;
+        switch (direction) {
+            case ShipMap.ABOVE -> neighbor = MortonOrder.incrementY(index);
+            case ShipMap.BELOW -> neighbor = MortonOrder.decrementY(index);
+            case ShipMap.LEFT -> neighbor = MortonOrder.decrementX(index);
+            case ShipMap.RIGHT -> neighbor = MortonOrder.incrementX(index);
+            default -> throw new RuntimeException("Direction must be 0, 1, 2, or 3. " +
+                    direction + " is not valid.");
+        }
+        if (MortonOrder.decodeX(neighbor) >= size || MortonOrder.decodeY(neighbor) >= size) return -1;
+        return neighbor;
+    }
+
+    /**
+     * Detects whether the cell with the given index is open in the maze, burning or not.
+     *
+     * @param index a cell's index
+     * @return true if the cell is open, otherwise false
+     */
+    public boolean isOpen(int index) {
+        return (openBits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Detects whether a cell is open in the maze, treating cells outside the ship as closed.
+     *
+     * @param cell the cell in question
+     * @return true if the cell is open, otherwise false
+     */
+    public boolean isOpen(Coordinate cell) {
+        return cell.isInBounds(size, size) && isOpen(cellIndex(cell));
+    }
+
+    /**
+     * The index of a cell's neighbor, read from the precomputed table.
+     *
+     * @param index a cell's index
+     * @param direction ABOVE, BELOW, LEFT, or RIGHT
+     * @return the neighbor's index, or -1 if the neighbor is outside the ship
+     */
+    public int neighborIndex(int index, int direction) {
+        if (direction < 0 || direction >= ShipMap.DIRECTIONS)
+            throw new RuntimeException("Direction must be 0, 1, 2, or 3. " + direction + " is not valid.");
+        return neighbors[index * ShipMap.DIRECTIONS + direction];
+    }
+
+    /**
+     * The index of a cell.
+     *
+     * @param cell a cell within the bounds of the ship
+     * @return the cell's index, between 0 and getCellCount() - 1
+     */
+    public int cellIndex(Coordinate cell) {
+        return MortonOrder.encode(cell.getX(), cell.getY());
+    }
+
+    /**
+     * The shared Coordinate for an index.
+     *
+     * @param index a cell's index
+     * @return the cell's Coordinate
+     */
+    public Coordinate coordinateOf(int index) {
+        return cells[index];
+    }
+
+    /**
+     * The number of open cells.
+     *
+     * @return the number of open cells
+     */
+    public int getOpenCount() {
+        return openIndices.length;
+    }
+
+    /**
+     * An open cell, counting in index order.
+     *
+     * @param i the cell's position among the open cells, from 0 to getOpenCount() - 1
+     * @return the index of the i-th open cell
+     */
+    public int openIndex(int i) {
+        return openIndices[i];
+    }
+
+    /**
+     * The open cells of the maze.
+     *
+     * @return a new set of the open cells
+     */
+    public HashSet<Coordinate> getOpenCells() {
+        HashSet<Coordinate> result = new HashSet<>();
+        for (int index : openIndices) result.add(cells[index]);
+        return result;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * The number of distinct cell indices, rounded up to a power-of-two square.
+     *
+     * @return one more than the largest value cellIndex can return
+     */
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    /**
+     * The open cells as a row-major bitboard. The array is shared and must not be modified.
+     *
+     * @return bit x * size + y set for each open cell (x, y)
+     */
+    long[] openBoard() {
+        return openBoard;
+    }
+
+    /**
+     * The cells with y = 0 as a row-major bitboard. The array is shared and must not be modified.
+     *
+     * @return bit x * size set for each x
+     */
+    long[] lowYBoard() {
+        return lowYBoard;
+    }
+
+    /**
+     * The cells with y = size - 1 as a row-major bitboard. The array is shared and must not be
+     * modified.
+     *
+     * @return bit x * size + size - 1 set for each x
+     */
+    long[] highYBoard() {
+        return highYBoard;
+    }
+
+    /**
+     * The layout's search landmarks, which are chosen and measured on the first call and
+     * shared by every ship on the layout after that.
+     *
+     * @return the layout's landmarks
+     */
+    public Landmarks getLandmarks() {
+        Landmarks result = landmarks;
+        if (result == null) {
+            synchronized (this) {
+                result = landmarks;
+                if (result == null) landmarks = result = new Landmarks(this, Landmarks.DEFAULT_COUNT);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A 64-bit Zobrist hash of the open cells.
+     *
+     * @return the layout's hash
+     */
+    public long getLayoutHash() {
+        return layoutHash;
+    }
+}
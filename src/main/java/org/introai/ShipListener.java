@@ -0,0 +1,27 @@
+package org.introai;
+
+/**
+ * Receives changes to a ship's state as they happen, so indices derived from the fire or the
+ * bot can be kept up to date without rescanning the ship. Listeners are called on the thread
+ * that changed the ship, after the change has been applied.
+ */
+public interface ShipListener {
+    /**
+     * Called after a previously open cell catches fire.
+     *
+     * @param shipMap the ship that changed
+     * @param index the index of the cell that ignited
+     */
+    default void cellIgnited(ShipMap shipMap, int index) {
+    }
+
+    /**
+     * Called after the bot moves one cell.
+     *
+     * @param shipMap the ship that changed
+     * @param from the index of the bot's previous cell
+     * @param to the index of the bot's new cell
+     */
+    default void botMoved(ShipMap shipMap, int from, int to) {
+    }
+}
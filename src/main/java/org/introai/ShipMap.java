@@ -1,15 +1,41 @@
 package org.introai;
 
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * The state of one run on a ship: where the fire is, where the bot is, and where the goal is.
+ * The maze itself is a shared, immutable ShipLayout; each ship only owns a bitmap of its
+ * burning cells, so copies are cheap and many ships can share one layout across threads.
+ */
 public class ShipMap {
+    public static final int ABOVE = 0;
+    public static final int BELOW = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+    public static final int DIRECTIONS = 4;
+
+    private static final byte CLOSED = 0;
+    private static final byte OPEN = 1;
+    private static final byte FIRE = 2;
+
+    // Salts that give each kind of Zobrist key its own independent sequence
+    private static final long FIRE_SALT = 0x666972654B657973L;
+    private static final long BOT_SALT = 0x626F744B65797321L;
+
+    private final ShipLayout layout;
     private final int size;
     private double flammability;
     private Coordinate goalLocation;
     private Coordinate botLocation;
-    private final HashSet<Coordinate> openCells;
-    private final HashSet<Coordinate> fireCells;
+    private int botIndex;
+    private final long[] fireBits;
+    private int fireCount;
+    private final long layoutHash;
+    private long fireHash;
+    private long stateHash;
+    private ArrayList<ShipListener> listeners;
+    private FireFront fireFront;
 
     /**
      * Creates a new ship.
@@ -18,53 +44,118 @@ public class ShipMap {
      * @param flammability how fast the fire spreads on the ship (0.0 - 1.0)
      */
     public ShipMap(int size, double flammability) {
-        this.size = Math.abs(size);
+        this(size, flammability, RandomSource.unseeded());
+    }
+
+    /**
+     * Creates a new ship whose layout and starting positions are drawn from the given source.
+     *
+     * @param size the height and width of the ship
+     * @param flammability how fast the fire spreads on the ship (0.0 - 1.0)
+     * @param random the source of the ship's layout and starting positions
+     */
+    public ShipMap(int size, double flammability, RandomSource random) {
+        this(Math.abs(size), flammability, new ShipCreator(Math.abs(size), random).generateShip(), random);
+    }
+
+    /**
+     * Creates a new ship with an existing layout. The bot, the goal, and the first burning cell
+     * are placed at random, so many runs can share one layout with different starts.
+     *
+     * @param size the height and width of the ship
+     * @param flammability how fast the fire spreads on the ship (0.0 - 1.0)
+     * @param layout the open cells of the ship, as produced by ShipCreator; it is not modified
+     * @param random the source of the starting positions
+     */
+    public ShipMap(int size, double flammability, HashSet<Coordinate> layout, RandomSource random) {
+        this(new ShipLayout(size, layout), flammability, random);
+    }
+
+    /**
+     * Creates a new ship on a shared layout. The bot, the goal, and the first burning cell are
+     * placed at random. The layout is not copied, so any number of ships may share it.
+     *
+     * @param layout the ship's maze
+     * @param flammability how fast the fire spreads on the ship (0.0 - 1.0)
+     * @param random the source of the starting positions
+     */
+    public ShipMap(ShipLayout layout, double flammability, RandomSource random) {
+        this.layout = layout;
+        this.size = layout.getSize();
         this.flammability = flammability;
-        this.openCells = new ShipCreator(size).generateShip();
-        this.fireCells = new HashSet<>();
-        int sizeOpenCells = this.openCells.size();
+        this.fireBits = new long[(layout.getCellCount() + Long.SIZE - 1) / Long.SIZE];
+        int sizeOpenCells = layout.getOpenCount();
         int goalI;
         int botI;
         int fireI;
 
         // Randomly place the bot, the goal, and set one cell on fire
-        goalI = ThreadLocalRandom.current().nextInt(sizeOpenCells);
+        goalI = random.nextInt(sizeOpenCells);
         do {
-            botI = ThreadLocalRandom.current().nextInt(sizeOpenCells);
+            botI = random.nextInt(sizeOpenCells);
         } while (botI == goalI);
         do {
-            fireI = ThreadLocalRandom.current().nextInt(sizeOpenCells);
+            fireI = random.nextInt(sizeOpenCells);
         } while (fireI == botI || fireI == goalI);
 
-        int i = 0;
-        Coordinate cellToBurn = null;
-        for (Coordinate cell : this.openCells) {
-            if (i == goalI) this.goalLocation = cell;
-            else if (i == botI) this.botLocation = cell;
-            else if (i == fireI) cellToBurn = cell;
-            i++;
-        }
-        igniteCell(cellToBurn);
+        // Open cells are counted in Z-order so the same seed always picks the same cells
+        this.goalLocation = layout.coordinateOf(layout.openIndex(goalI));
+        this.botIndex = layout.openIndex(botI);
+        this.botLocation = layout.coordinateOf(botIndex);
+        this.layoutHash = layout.getLayoutHash();
+        this.stateHash = layoutHash ^ zobristKey(BOT_SALT, botIndex);
+        igniteCell(layout.coordinateOf(layout.openIndex(fireI)));
     }
 
     /**
-     * Creates a ship with preset values. Used for making copies and testing.
+     * Creates a copy of a ship's state on the same layout.
      *
-     * @param size the size of the ship
-     * @param flammability how fast the fire spreads
-     * @param goalLocation the location of the goal
-     * @param botLocation the location of the bot
-     * @param openCells the set of open cells on the ship
-     * @param fireCells the set of ignited cells
+     * @param other the ship to copy
      */
-    private ShipMap(int size, double flammability, Coordinate goalLocation, Coordinate botLocation,
-                    HashSet<Coordinate> openCells, HashSet<Coordinate> fireCells) {
-        this.size = size;
-        this.flammability = flammability;
-        this.goalLocation = goalLocation;
-        this.botLocation = botLocation;
-        this.openCells = openCells;
-        this.fireCells = fireCells;
+    private ShipMap(ShipMap other) {
+        this.layout = other.layout;
+        this.size = other.size;
+        this.flammability = other.flammability;
+        this.goalLocation = other.goalLocation;
+        this.botLocation = other.botLocation;
+        this.botIndex = other.botIndex;
+        this.fireBits = other.fireBits.clone();
+        this.fireCount = other.fireCount;
+        this.layoutHash = other.layoutHash;
+        this.fireHash = other.fireHash;
+        this.stateHash = other.stateHash;
+        if (other.fireFront != null) addListener(this.fireFront = other.fireFront.copy());
+    }
+
+    /**
+     * Registers a listener for this ship's ignitions and bot moves. Listeners are not carried
+     * over to copies of the ship, except for the ship's own fire front.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(ShipListener listener) {
+        if (listeners == null) listeners = new ArrayList<>();
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops sending changes to a listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(ShipListener listener) {
+        if (listeners != null) listeners.remove(listener);
+    }
+
+    /**
+     * The open cells next to fire. The front is built from the burning cells the first time
+     * it is asked for and kept up to date on every ignition after that.
+     *
+     * @return the ship's fire front
+     */
+    public FireFront getFireFront() {
+        if (fireFront == null) addListener(fireFront = new FireFront(this));
+        return fireFront;
     }
 
     /**
@@ -73,12 +164,40 @@ public class ShipMap {
      * @param cell the cell to be ignited
      */
     public void igniteCell(Coordinate cell) {
-        if (openCells.contains(cell)) {
-            fireCells.add(cell);
-            openCells.remove(cell);
+        if (stateOf(cell) == OPEN) {
+            int index = cellIndex(cell);
+            fireBits[index >>> 6] |= 1L << index;
+            fireCount++;
+            long key = zobristKey(FIRE_SALT, index);
+            fireHash ^= key;
+            stateHash ^= key;
+            if (listeners != null)
+                for (ShipListener listener : listeners) listener.cellIgnited(this, index);
         }
     }
 
+    /**
+     * The state of a cell, treating cells outside the ship as closed.
+     *
+     * @param cell the cell in question
+     * @return CLOSED, OPEN, or FIRE
+     */
+    private byte stateOf(Coordinate cell) {
+        if (!cell.isInBounds(size, size)) return CLOSED;
+        return stateOf(cellIndex(cell));
+    }
+
+    /**
+     * The state of the cell with the given index.
+     *
+     * @param index a value returned by cellIndex
+     * @return CLOSED, OPEN, or FIRE
+     */
+    private byte stateOf(int index) {
+        if ((fireBits[index >>> 6] & (1L << index)) != 0) return FIRE;
+        return layout.isOpen(index) ? OPEN : CLOSED;
+    }
+
     /**
      * Finds a given cell's open neighbors.
      *
@@ -91,7 +210,7 @@ public class ShipMap {
         Coordinate[] neighbors = {cell.getAbove(), cell.getBelow(), cell.getLeft(), cell.getRight()};
         int currIndex = 0;
         for (Coordinate neighbor : neighbors) {
-            if (openCells.contains(neighbor)) {
+            if (stateOf(neighbor) == OPEN) {
                 openNeighbors[currIndex] = neighbor;
                 currIndex++;
             }
@@ -107,15 +226,31 @@ public class ShipMap {
         return result;
     }
 
+    /**
+     * Moves the bot one cell. No objects are allocated, and listeners are told of the move.
+     *
+     * @param direction the direction to move in
+     * @throws RuntimeException if bot tries to move to an invalid cell.
+     */
+    public void move(Direction direction) throws RuntimeException {
+        int next = neighborIndex(botIndex, direction.ordinal());
+        if (next < 0 || stateOf(next) == CLOSED)
+            throw new RuntimeException("Bot tried to move to an invalid cell");
+        int previous = botIndex;
+        stateHash ^= zobristKey(BOT_SALT, previous) ^ zobristKey(BOT_SALT, next);
+        this.botIndex = next;
+        this.botLocation = layout.coordinateOf(next);
+        if (listeners != null)
+            for (ShipListener listener : listeners) listener.botMoved(this, previous, next);
+    }
+
     /**
      * Moves the bot up one cell.
      *
      * @throws RuntimeException if bot tries to move to an invalid cell.
      */
     public void moveBotUp() throws RuntimeException {
-        Coordinate above = botLocation.getAbove();
-        if (openCells.contains(above) || fireCells.contains(above)) this.botLocation = above;
-        else throw new RuntimeException("Bot tried to move to an invalid cell");
+        move(Direction.ABOVE);
     }
 
     /**
@@ -124,9 +259,7 @@ public class ShipMap {
      * @throws RuntimeException if bot tries to move to an invalid cell.
      */
     public void moveBotDown() throws RuntimeException {
-        Coordinate below = botLocation.getBelow();
-        if (openCells.contains(below) || fireCells.contains(below)) this.botLocation = below;
-        else throw new RuntimeException("Bot tried to move to an invalid cell");
+        move(Direction.BELOW);
     }
 
     /**
@@ -135,9 +268,7 @@ public class ShipMap {
      * @throws RuntimeException if bot tries to move to an invalid cell.
      */
     public void moveBotLeft() throws RuntimeException {
-        Coordinate left = botLocation.getLeft();
-        if (openCells.contains(left) || fireCells.contains(left)) this.botLocation = left;
-        else throw new RuntimeException("Bot tried to move to an invalid cell");
+        move(Direction.LEFT);
     }
 
     /**
@@ -146,27 +277,38 @@ public class ShipMap {
      * @throws RuntimeException if bot tries to move to an invalid cell.
      */
     public void moveBotRight() throws RuntimeException {
-        Coordinate right = botLocation.getRight();
-        if (openCells.contains(right) || fireCells.contains(right)) this.botLocation = right;
-        else throw new RuntimeException("Bot tried to move to an invalid cell");
+        move(Direction.RIGHT);
     }
 
     /**
-     * The open cells on the ship.
+     * The open cells on the ship that are not on fire.
      *
-     * @return a copy of the set of open cells
+     * @return a new set of the open cells
      */
     public HashSet<Coordinate> getOpenCells() {
-        return (HashSet<Coordinate>) openCells.clone();
+        HashSet<Coordinate> result = new HashSet<>();
+        for (int i = 0; i < layout.getOpenCount(); i++) {
+            int index = layout.openIndex(i);
+            if (stateOf(index) == OPEN) result.add(layout.coordinateOf(index));
+        }
+        return result;
     }
 
     /**
      * The ignited cells on the ship.
      *
-     * @return a copy of the ignited cells on the ship
+     * @return a new set of the ignited cells
      */
     public HashSet<Coordinate> getFireCells() {
-        return (HashSet<Coordinate>) fireCells.clone();
+        HashSet<Coordinate> result = new HashSet<>(fireCount * 2);
+        for (int word = 0; word < fireBits.length; word++) {
+            long bits = fireBits[word];
+            while (bits != 0) {
+                result.add(layout.coordinateOf(word * Long.SIZE + Long.numberOfTrailingZeros(bits)));
+                bits &= bits - 1;
+            }
+        }
+        return result;
     }
 
     /**
@@ -176,23 +318,139 @@ public class ShipMap {
      * @return true if the cell is on fire, otherwise false
      */
     public boolean isOnFire(Coordinate cell) {
-        return fireCells.contains(cell);
+        return stateOf(cell) == FIRE;
+    }
+
+    /**
+     * Detects whether the cell with the given index is open and not on fire.
+     *
+     * @param index a value returned by cellIndex
+     * @return true if the cell is open, otherwise false
+     */
+    public boolean isOpen(int index) {
+        return stateOf(index) == OPEN;
+    }
+
+    /**
+     * Detects whether the cell with the given index is on fire.
+     *
+     * @param index a value returned by cellIndex
+     * @return true if the cell is on fire, otherwise false
+     */
+    public boolean isOnFire(int index) {
+        return (fireBits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Finds the index of a cell's neighbor without building any Coordinates.
+     *
+     * @param index a value returned by cellIndex
+     * @param direction ABOVE, BELOW, LEFT, or RIGHT
+     * @return the neighbor's index, or -1 if the neighbor is outside the ship
+     */
+    public int neighborIndex(int index, int direction) {
+        return layout.neighborIndex(index, direction);
+    }
+
+    /**
+     * The cell with the given index.
+     *
+     * @param index a value returned by cellIndex
+     * @return the cell's Coordinate
+     */
+    public Coordinate coordinateOf(int index) {
+        return layout.coordinateOf(index);
     }
 
     /**
-     * The Coordinate of the goal on the ship.
+     * The Coordinate of the goal on the ship. Coordinates are immutable, so it is not copied.
      * @return the Coordinate of the goal on the ship
      */
     public Coordinate getGoalLocation() {
-        return goalLocation.copy();
+        return goalLocation;
     }
 
     /**
-     * The location of the bot.
+     * The location of the bot. Coordinates are immutable, so it is not copied.
      * @return the location of the bot
      */
     public Coordinate getBotLocation() {
-        return botLocation.copy();
+        return botLocation;
+    }
+
+    /**
+     * The index of the bot's cell.
+     * @return the value of cellIndex for the bot's location
+     */
+    public int getBotIndex() {
+        return botIndex;
+    }
+
+    /**
+     * The height and width of the ship.
+     * @return the height and width of the ship
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * The number of distinct cell indices on the ship. Indices follow MortonOrder, so this
+     * is rounded up to a power-of-two square and some indices lie outside the ship.
+     * @return one more than the largest value cellIndex can return
+     */
+    public int getCellCount() {
+        return layout.getCellCount();
+    }
+
+    /**
+     * A dense index for a cell, suitable for per-cell arrays. Cells are numbered in Z-order
+     * so that neighboring cells usually share a cache line.
+     *
+     * @param cell a cell within the bounds of the ship
+     * @return the cell's index, between 0 and getCellCount() - 1
+     */
+    public int cellIndex(Coordinate cell) {
+        return MortonOrder.encode(cell.getX(), cell.getY());
+    }
+
+    /**
+     * A 64-bit Zobrist hash of which cells are open or burning, ignoring which are which.
+     * It never changes during a run.
+     * @return the Zobrist hash of the ship's layout
+     */
+    public long getLayoutHash() {
+        return layoutHash;
+    }
+
+    /**
+     * A 64-bit Zobrist hash of the layout, the burning cells, and the bot's location. It is
+     * updated incrementally whenever a cell ignites or the bot moves, so it costs nothing to
+     * read. The goal is not part of it.
+     * @return the Zobrist hash of the ship's state
+     */
+    public long getStateHash() {
+        return stateHash;
+    }
+
+    /**
+     * A 64-bit Zobrist hash of the burning cells.
+     * @return the Zobrist hash of the burning cells
+     */
+    public long getFireHash() {
+        return fireHash;
+    }
+
+    /**
+     * The Zobrist key for one feature of one cell. Keys are computed rather than stored, so
+     * ships of any size share them and no tables need to be kept in memory.
+     *
+     * @param salt which feature the key is for
+     * @param index the cell's index
+     * @return a pseudo-random 64-bit key
+     */
+    static long zobristKey(long salt, int index) {
+        return RandomSource.mix64(salt + index * 0x9E3779B97F4A7C15L);
     }
 
     /**
@@ -204,16 +462,50 @@ public class ShipMap {
     }
 
     /**
-     * Creates a new ship with the same state as the current ship.
+     * The open cells that are not on fire, as a row-major bitboard like ShipLayout's.
+     *
+     * @return a new bitboard with bit x * size + y set for each passable cell (x, y)
+     */
+    long[] passableBoard() {
+        long[] board = layout.openBoard().clone();
+        for (int word = 0; word < fireBits.length; word++) {
+            for (long bits = fireBits[word]; bits != 0; bits &= bits - 1) {
+                int index = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                int bit = MortonOrder.decodeX(index) * size + MortonOrder.decodeY(index);
+                board[bit >>> 6] &= ~(1L << bit);
+            }
+        }
+        return board;
+    }
+
+    /**
+     * The ship's maze, which may be shared with other ships.
+     * @return the ship's layout
+     */
+    public ShipLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Creates a new ship with the same state as the current ship. The copy shares this
+     * ship's layout and only copies the burning cells.
      *
      * @return a new ship with the same state as the current ship
      */
     public ShipMap copyState() {
-        HashSet<Coordinate> newOpenCells = getOpenCells();
-        HashSet<Coordinate> newFireCells = getFireCells();
+        return new ShipMap(this);
+    }
 
-        return new ShipMap(size, flammability, goalLocation.copy(),
-                botLocation.copy(), newOpenCells, newFireCells);
+    /**
+     * Creates a new ship with the same state as the current ship but a different flammability.
+     *
+     * @param flammability how fast the fire spreads on the new ship
+     * @return a new ship with the same layout, bot, goal, and fire as the current ship
+     */
+    public ShipMap copyState(double flammability) {
+        ShipMap copy = copyState();
+        copy.flammability = flammability;
+        return copy;
     }
 
     @Override
@@ -236,9 +528,9 @@ public class ShipMap {
                     result.append(BOT);
                 } else if (curr.equals(this.goalLocation)) {
                     result.append(GOAL);
-                } else if (this.fireCells.contains(curr)) {
+                } else if (stateOf(curr) == FIRE) {
                     result.append(ON_FIRE);
-                } else if (this.openCells.contains(curr)) {
+                } else if (stateOf(curr) == OPEN) {
                         result.append(OPEN_CELL);
                 } else {
                     result.append(CLOSED_CELL);
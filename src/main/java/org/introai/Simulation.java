@@ -1,19 +1,31 @@
 package org.introai;
 
 import org.introai.bots.*;
+import org.introai.events.FireTickEvent;
+import org.introai.events.SimulationRunEvent;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.List;
 
 public class Simulation {
     private final ShipMap shipMap;
-    private final HashSet<Coordinate> catchingFire;
+    private final RandomSource random;
+    private SpatialAnalytics analytics;
+    private BitSet region;
 
     private final double fireChance1;
     private final double fireChance2;
     private final double fireChance3;
     private final double fireChance4;
 
+    // Set only when fire is sampled at a tilted flammability; indexed by burning neighbors
+    private final double[] samplingChances;
+    private final double[] logIgniteRatios;
+    private final double[] logSpareRatios;
+    private double logLikelihoodRatio;
+
     /**
      * Creates a new simulation in a new ship.
      *
@@ -21,12 +33,19 @@ public class Simulation {
      * @param shipFlammability the ship's flammability (q)
      */
     public Simulation(int shipSize, double shipFlammability) {
-        this.shipMap = new ShipMap(shipSize, shipFlammability);
-        this.catchingFire = new HashSet<>();
-        this.fireChance1 = 1 - Math.pow(1 - shipFlammability, 1);
-        this.fireChance2 = 1 - Math.pow(1 - shipFlammability, 2);
-        this.fireChance3 = 1 - Math.pow(1 - shipFlammability, 3);
-        this.fireChance4 = 1 - Math.pow(1 - shipFlammability, 4);
+        this(shipSize, shipFlammability, RandomSource.unseeded());
+    }
+
+    /**
+     * Creates a new simulation in a new ship. The ship's layout and the fire's spread are
+     * both drawn from the given source, so the same seed always produces the same run.
+     *
+     * @param shipSize the size of the ship to be simulated
+     * @param shipFlammability the ship's flammability (q)
+     * @param random the source of every random decision in the simulation
+     */
+    public Simulation(int shipSize, double shipFlammability, RandomSource random) {
+        this(new ShipMap(shipSize, shipFlammability, random.split()), random);
     }
 
     /**
@@ -35,28 +54,80 @@ public class Simulation {
      * @param shipMap the ship to be simulated
      */
     public Simulation(ShipMap shipMap) {
+        this(shipMap, RandomSource.unseeded());
+    }
+
+    /**
+     * Creates a new simulation on an existing ship.
+     *
+     * @param shipMap the ship to be simulated
+     * @param random the source of the fire's spread
+     */
+    public Simulation(ShipMap shipMap, RandomSource random) {
+        this(shipMap, random, shipMap.getFlammability());
+    }
+
+    /**
+     * Creates a simulation whose fire is sampled at a different flammability than the ship's.
+     * Only rolls that would move the fire closer to the bot or the goal use the sampling
+     * flammability, since those decide the outcome; tilting every roll would make the weights
+     * degenerate on large fires. Each tilted roll multiplies the run's likelihood ratio by how
+     * much more likely its outcome is at the ship's flammability than at the sampling one, so
+     * weighting each run's outcome by getLikelihoodRatio gives unbiased estimates at the ship's
+     * flammability. Bots still see the ship's own flammability.
+     *
+     * @param shipMap the ship to be simulated
+     * @param random the source of the fire's spread
+     * @param samplingFlammability the flammability the fire actually spreads with
+     */
+    public Simulation(ShipMap shipMap, RandomSource random, double samplingFlammability) {
         this.shipMap = shipMap;
+        this.random = random;
         double shipFlammability = shipMap.getFlammability();
-        this.catchingFire = new HashSet<>();
         this.fireChance1 = 1 - Math.pow(1 - shipFlammability, 1);
         this.fireChance2 = 1 - Math.pow(1 - shipFlammability, 2);
         this.fireChance3 = 1 - Math.pow(1 - shipFlammability, 3);
         this.fireChance4 = 1 - Math.pow(1 - shipFlammability, 4);
+
+        if (samplingFlammability == shipFlammability) {
+            this.samplingChances = null;
+            this.logIgniteRatios = null;
+            this.logSpareRatios = null;
+        } else {
+            if (samplingFlammability <= 0 || samplingFlammability >= 1)
+                throw new IllegalArgumentException("Sampling flammability must be strictly between 0 and 1, not " +
+                        samplingFlammability);
+            this.samplingChances = new double[ShipMap.DIRECTIONS + 1];
+            this.logIgniteRatios = new double[ShipMap.DIRECTIONS + 1];
+            this.logSpareRatios = new double[ShipMap.DIRECTIONS + 1];
+            for (int k = 1; k <= ShipMap.DIRECTIONS; k++) {
+                double nominal = 1 - Math.pow(1 - shipFlammability, k);
+                double sampled = 1 - Math.pow(1 - samplingFlammability, k);
+                samplingChances[k] = sampled;
+                logIgniteRatios[k] = Math.log(nominal) - Math.log(sampled);
+                logSpareRatios[k] = Math.log1p(-nominal) - Math.log1p(-sampled);
+            }
+        }
     }
 
     /**
      * Simulates how the fire will spread, then ignites those cells on the ship.
+     * Only cells on the ship's fire front can ignite, so only they are visited, in the ship's
+     * Z-order so neighboring cells are read together.
+     *
+     * @return the cells that caught fire during this tick
      */
-    public void simulateFireSpread() {
-        HashSet<Coordinate> openCells = shipMap.getOpenCells();
-        for (Coordinate cell : openCells) {
-            if (willCatchFire(cell)) catchingFire.add(cell);
+    public ArrayList<Coordinate> simulateFireSpread() {
+        ArrayList<Coordinate> catchingFire = new ArrayList<>();
+        FireFront front = shipMap.getFireFront();
+        for (int index = front.nextCell(0); index >= 0; index = front.nextCell(index + 1)) {
+            if (willCatchFire(index)) catchingFire.add(shipMap.coordinateOf(index));
         }
 
         for (Coordinate cell : catchingFire) {
             shipMap.igniteCell(cell);
         }
-        catchingFire.clear();
+        return catchingFire;
     }
 
     /**
@@ -66,32 +137,69 @@ public class Simulation {
      * @return a set of cells that are predicted to catch fire in the next turnsIntoFuture turns
      */
     public HashSet<Coordinate> firePrediction(int turnsIntoFuture) {
-        HashSet<Coordinate> fakeOpenCells = shipMap.getOpenCells();
-        HashSet<Coordinate> fakeCatchingFire = new HashSet<>();
+        FireFront front = shipMap.getFireFront();
+        boolean[] fakeCatchingFire = new boolean[shipMap.getCellCount()];
+        HashSet<Coordinate> predicted = new HashSet<>();
 
+        // Predicted cells never burn, so the front stays the same for every turn
         for (int i = 0; i < turnsIntoFuture; i++) {
-            for (Coordinate cell : fakeOpenCells)
-                if (willCatchFire(cell)) fakeCatchingFire.add(cell);
-            for (Coordinate cell : fakeCatchingFire)
-                fakeOpenCells.remove(cell);
+            for (int index = front.nextCell(0); index >= 0; index = front.nextCell(index + 1)) {
+                if (region != null && !region.get(index)) continue;
+                if (!fakeCatchingFire[index] && willCatchFire(index)) {
+                    fakeCatchingFire[index] = true;
+                    predicted.add(shipMap.coordinateOf(index));
+                }
+            }
         }
 
-        return fakeCatchingFire;
+        return predicted;
+    }
+
+    /**
+     * Predicts how the fire will spread, deciding each cell with a single roll from the given
+     * supplier. A cell next to k burning cells ignites within the next turnsIntoFuture turns
+     * with probability 1 - (1 - q)^(k * turnsIntoFuture), so one roll per cell gives the same
+     * prediction as firePrediction(turnsIntoFuture) in distribution. Related rolls across
+     * rollouts (antithetic or lattice) then make the averaged prediction less noisy.
+     *
+     * @param turnsIntoFuture how many turns into the future are being predicted
+     * @param rolls the roll for each cell in this rollout
+     * @return a set of cells that are predicted to catch fire in the next turnsIntoFuture turns
+     */
+    public HashSet<Coordinate> firePrediction(int turnsIntoFuture, IgnitionRolls rolls) {
+        FireFront front = shipMap.getFireFront();
+        double[] igniteChances = new double[ShipMap.DIRECTIONS + 1];
+        for (int k = 1; k <= ShipMap.DIRECTIONS; k++) {
+            igniteChances[k] = 1 - Math.pow(1 - shipMap.getFlammability(), (double) k * turnsIntoFuture);
+        }
+        HashSet<Coordinate> predicted = new HashSet<>();
+
+        for (int index = front.nextCell(0); index >= 0; index = front.nextCell(index + 1)) {
+            if (region != null && !region.get(index)) continue;
+            if (rolls.roll(index) < igniteChances[front.burningNeighbors(index)])
+                predicted.add(shipMap.coordinateOf(index));
+        }
+        return predicted;
     }
 
     /**
      * Decides whether a cell will catch fire during the current tick.
      *
-     * @param cell the cell that might catch fire
+     * @param index the index of the cell that might catch fire
      * @return true if cell catches fire, otherwise false
      * @throws RuntimeException if 0 <= neighborsOnFire <= 4
      */
-    private boolean willCatchFire(Coordinate cell) throws RuntimeException {
+    private boolean willCatchFire(int index) throws RuntimeException {
         int neighborsOnFire = 0;
-        Coordinate[] neighbors = {cell.getAbove(), cell.getBelow(), cell.getLeft(), cell.getRight()};
+        int closestFireDistance = Integer.MAX_VALUE;
 
-        for (Coordinate neighbor : neighbors) {
-            if (shipMap.isOnFire(neighbor)) neighborsOnFire++;
+        for (int direction = 0; direction < ShipMap.DIRECTIONS; direction++) {
+            int neighbor = shipMap.neighborIndex(index, direction);
+            if (neighbor >= 0 && shipMap.isOnFire(neighbor)) {
+                neighborsOnFire++;
+                if (samplingChances != null)
+                    closestFireDistance = Math.min(closestFireDistance, distanceToTargets(neighbor));
+            }
         }
         if (neighborsOnFire == 0) return false;
 
@@ -105,8 +213,39 @@ public class Simulation {
                     neighborsOnFire + " is not valid.");
         }
 
-        double roll = ThreadLocalRandom.current().nextDouble();
-        return roll < probabilityOfFire;
+        double roll = random.nextDouble();
+        // Only spread toward the bot or the goal is tilted; other rolls keep a ratio of 1
+        if (samplingChances == null || distanceToTargets(index) >= closestFireDistance)
+            return roll < probabilityOfFire;
+
+        boolean ignites = roll < samplingChances[neighborsOnFire];
+        logLikelihoodRatio += ignites ? logIgniteRatios[neighborsOnFire] : logSpareRatios[neighborsOnFire];
+        return ignites;
+    }
+
+    /**
+     * The Manhattan distance from a cell to the nearer of the bot and the goal.
+     *
+     * @param index the cell's index
+     * @return the distance to the bot or the goal, whichever is closer
+     */
+    private int distanceToTargets(int index) {
+        int x = MortonOrder.decodeX(index);
+        int y = MortonOrder.decodeY(index);
+        Coordinate bot = shipMap.getBotLocation();
+        Coordinate goal = shipMap.getGoalLocation();
+        return Math.min(Math.abs(x - bot.getX()) + Math.abs(y - bot.getY()),
+                Math.abs(x - goal.getX()) + Math.abs(y - goal.getY()));
+    }
+
+    /**
+     * How much more likely the fire rolled so far is at the ship's flammability than at the
+     * sampling flammability. It is always 1 when the two are the same.
+     *
+     * @return the product of every roll's likelihood ratio
+     */
+    public double getLikelihoodRatio() {
+        return Math.exp(logLikelihoodRatio);
     }
 
     /**
@@ -116,20 +255,104 @@ public class Simulation {
      * @return true if the bot was successful, otherwise false
      */
     public boolean run (Bot bot) {
+        return run(bot, null);
+    }
+
+    /**
+     * Runs one simulation, replaying a precomputed fire instead of rolling for new ignitions.
+     * The trajectory must have been recorded from this simulation's starting state.
+     *
+     * @param bot the bot that will make decisions
+     * @param trajectory the fire to replay, or null to simulate the fire as usual
+     * @return true if the bot was successful, otherwise false
+     */
+    public boolean run(Bot bot, FireTrajectory trajectory) {
+        SimulationRunEvent runEvent = new SimulationRunEvent();
+        runEvent.begin();
         Coordinate goal = shipMap.getGoalLocation();
         boolean botCanMove = true;
         boolean goalAchieved = false;
+        int tick = 0;
+        SpatialAnalytics.Accumulator accumulator = analytics == null ? null : analytics.localAccumulator();
 
         while (botCanMove && !goalAchieved) {
+            FireTickEvent tickEvent = new FireTickEvent();
+            tickEvent.begin();
             botCanMove = bot.makeAMove();
             Coordinate botLocation = shipMap.getBotLocation();
             if (botLocation.equals(goal)) goalAchieved = true;
-            simulateFireSpread();
+            tick++;
+            int cellsIgnited;
+            if (trajectory == null) {
+                cellsIgnited = simulateFireSpread().size();
+            } else {
+                List<Coordinate> ignited = trajectory.cellsIgnitedAt(tick);
+                for (Coordinate cell : ignited)
+                    shipMap.igniteCell(cell);
+                cellsIgnited = ignited.size();
+            }
             if (shipMap.isOnFire(botLocation) || shipMap.isOnFire(goal)) botCanMove = false;
+            if (accumulator != null) accumulator.recordVisit(botLocation);
+            tickEvent.end();
+            if (tickEvent.shouldCommit()) {
+                tickEvent.tick = tick;
+                tickEvent.cellsIgnited = cellsIgnited;
+                tickEvent.commit();
+            }
+        }
+
+        if (accumulator != null) accumulator.recordOutcome(shipMap, goalAchieved);
+        runEvent.end();
+        if (runEvent.shouldCommit()) {
+            runEvent.bot = bot.getClass().getSimpleName();
+            runEvent.shipSize = shipMap.getSize();
+            runEvent.flammability = shipMap.getFlammability();
+            runEvent.ticks = tick;
+            runEvent.replayed = trajectory != null;
+            runEvent.won = goalAchieved;
+            runEvent.commit();
         }
         return goalAchieved;
     }
 
+    /**
+     * Runs one reproducible simulation on a new ship. The ship, the fire, and the bot each draw
+     * from their own stream split from the seed.
+     *
+     * @param botType the bot that will make decisions
+     * @param shipSize the size of the ship to be simulated
+     * @param shipFlammability the ship's flammability (q)
+     * @param seed the seed identifying the run
+     * @return true if the bot was successful, otherwise false
+     */
+    public static boolean runSeeded(BotType botType, int shipSize, double shipFlammability, long seed) {
+        RandomSource random = RandomSource.seeded(seed);
+        Simulation sim = new Simulation(shipSize, shipFlammability, random.split());
+        Bot bot = botType.create(sim.getShipMap(), random.split());
+        return sim.run(bot);
+    }
+
+    /**
+     * Records where the bot went, where it died, and where the fire reached in every later run
+     * of this simulation.
+     *
+     * @param analytics the collector for this simulation's ship layout, or null to stop recording
+     */
+    public void setAnalytics(SpatialAnalytics analytics) {
+        this.analytics = analytics;
+    }
+
+    /**
+     * Limits fire predictions to a region of the ship. Cells outside the region are never
+     * predicted to ignite and use no random numbers, so a prediction costs time in proportion
+     * to the fire inside the region. The spread of the real fire is not affected.
+     *
+     * @param region the indices of the cells to predict, or null to predict the whole ship
+     */
+    public void setRegion(BitSet region) {
+        this.region = region;
+    }
+
     public ShipMap getShipMap() {
         return shipMap;
     }
@@ -137,7 +360,7 @@ public class Simulation {
     public static void main(String[] args) {
         Simulation test = new Simulation(10, 0.45);
         System.out.println(test.shipMap);
-        boolean result = test.run(new Bot4(test.getShipMap()));
+        boolean result = test.run(new Bot4(test.getShipMap(), new PlanningBudget(40, 50)));
         System.out.println(result);
         System.out.println(test.shipMap);
     }
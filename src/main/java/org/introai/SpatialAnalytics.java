@@ -0,0 +1,153 @@
+package org.introai;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Per-cell heatmaps of where things happen across many runs on one ship layout: where bots
+ * die, how often each cell burns, and how often the bot stands on each cell.
+ * <p>
+ * Each thread that records runs gets its own accumulator of plain int arrays, so recording
+ * takes no locks and does not slow a parallel sweep. The accumulators are only summed when
+ * the results are written, which must happen after every run has finished.
+ */
+public class SpatialAnalytics {
+    private static final int MAGIC = 0x5350414E; // "SPAN"
+    private static final int VERSION = 1;
+
+    private final int size;
+    private final ShipLayout layout;
+    private final ConcurrentLinkedQueue<Accumulator> accumulators;
+    private final ThreadLocal<Accumulator> localAccumulator;
+
+    /**
+     * Creates an empty collector for runs on the given layout.
+     *
+     * @param layout the layout the runs share
+     */
+    public SpatialAnalytics(ShipLayout layout) {
+        this.size = layout.getSize();
+        this.layout = layout;
+        this.accumulators = new ConcurrentLinkedQueue<>();
+        this.localAccumulator = ThreadLocal.withInitial(() -> {
+            Accumulator accumulator = new Accumulator(size * size);
+            accumulators.add(accumulator);
+            return accumulator;
+        });
+    }
+
+    /**
+     * The calling thread's accumulator. Simulations fetch it once per run.
+     *
+     * @return an accumulator that only the calling thread writes to
+     */
+    Accumulator localAccumulator() {
+        return localAccumulator.get();
+    }
+
+    /**
+     * Sums every thread's counts and writes them as a binary file. The file holds, in order
+     * and big-endian: the magic number 0x5350414E, the format version, the ship size, the
+     * number of runs, and the number of wins as ints; the layout as size * size bytes (1 for
+     * open); then the death, fire, and path grids as size * size ints each. Grids are
+     * row-major with index x * size + y.
+     *
+     * @param file where to write the heatmaps
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Accumulator total = merge();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt(total.runs);
+            out.writeInt(total.wins);
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    out.writeByte(layout.isOpen(new Coordinate(x, y)) ? 1 : 0);
+                }
+            }
+            for (int[] grid : new int[][]{total.deaths, total.fireReach, total.pathUsage}) {
+                for (int count : grid) out.writeInt(count);
+            }
+        }
+    }
+
+    /**
+     * Sums the counts from every thread.
+     *
+     * @return a new accumulator holding the totals
+     */
+    public Accumulator merge() {
+        Accumulator total = new Accumulator(size * size);
+        for (Accumulator accumulator : accumulators) {
+            total.runs += accumulator.runs;
+            total.wins += accumulator.wins;
+            for (int i = 0; i < total.deaths.length; i++) {
+                total.deaths[i] += accumulator.deaths[i];
+                total.fireReach[i] += accumulator.fireReach[i];
+                total.pathUsage[i] += accumulator.pathUsage[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * One thread's counts. Only the owning thread may record into it.
+     */
+    public class Accumulator {
+        private final int[] deaths;
+        private final int[] fireReach;
+        private final int[] pathUsage;
+        private int runs;
+        private int wins;
+
+        private Accumulator(int cells) {
+            this.deaths = new int[cells];
+            this.fireReach = new int[cells];
+            this.pathUsage = new int[cells];
+        }
+
+        /**
+         * Records the bot standing on a cell at the end of a tick.
+         *
+         * @param cell the bot's location
+         */
+        void recordVisit(Coordinate cell) {
+            pathUsage[gridIndex(cell)]++;
+        }
+
+        /**
+         * Records the end of a run: which cells burned and, if the bot lost, where it was.
+         *
+         * @param shipMap the ship's final state
+         * @param won whether the bot reached the goal
+         */
+        void recordOutcome(ShipMap shipMap, boolean won) {
+            runs++;
+            if (won) wins++;
+            else deaths[gridIndex(shipMap.getBotLocation())]++;
+            for (int index = 0; index < shipMap.getCellCount(); index++) {
+                if (shipMap.isOnFire(index)) fireReach[gridIndex(shipMap.coordinateOf(index))]++;
+            }
+        }
+
+        private int gridIndex(Coordinate cell) {
+            int[] xy = cell.toArray();
+            return xy[0] * size + xy[1];
+        }
+
+        public int getRuns() {
+            return runs;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.introai;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of planning results keyed on 64-bit state hashes such as
+ * ShipMap.getStateHash. The cache is split into independently locked stripes, so threads
+ * working on different states rarely contend. Each stripe evicts its least recently used
+ * entry once it is full.
+ * <p>
+ * Keys are trusted: two states with the same hash share an entry. With 64-bit Zobrist
+ * hashes, collisions are rare enough to ignore for planning.
+ *
+ * @param <V> the type of the cached results, which must not be modified once cached
+ */
+public class TranspositionCache<V> {
+    private final List<Stripe<V>> stripes;
+    private final int stripeMask;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity the most entries the cache will hold
+     * @param stripeCount how many independently locked stripes to use, rounded up to a power of two
+     */
+    public TranspositionCache(int capacity, int stripeCount) {
+        if (capacity < 1 || stripeCount < 1)
+            throw new IllegalArgumentException("Capacity and stripe count must be positive");
+        int stripesNeeded = Integer.highestOneBit(Math.min(stripeCount, capacity) * 2 - 1);
+        this.stripes = new ArrayList<>(stripesNeeded);
+        this.stripeMask = stripesNeeded - 1;
+        int stripeCapacity = Math.max(1, capacity / stripesNeeded);
+        for (int i = 0; i < stripesNeeded; i++) {
+            stripes.add(new Stripe<>(stripeCapacity));
+        }
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Looks up a cached result.
+     *
+     * @param key the state's hash
+     * @return the cached result, or null if there is none
+     */
+    public V get(long key) {
+        Stripe<V> stripe = stripeFor(key);
+        V value;
+        synchronized (stripe) {
+            value = stripe.get(key);
+        }
+        if (value == null) misses.increment();
+        else hits.increment();
+        return value;
+    }
+
+    /**
+     * Stores a result, evicting the stripe's least recently used entry if it is full.
+     *
+     * @param key the state's hash
+     * @param value the result, which must not be modified afterwards
+     */
+    public void put(long key, V value) {
+        Stripe<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private Stripe<V> stripeFor(long key) {
+        // Keys are mixed hashes whose bits are uniformly distributed, so any bits will do
+        return stripes.get((int) (key ^ (key >>> 32)) & stripeMask);
+    }
+
+    private static class Stripe<V> extends LinkedHashMap<Long, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.introai.bench;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of latency measurements in nanoseconds. Not thread-safe: each benchmark
+ * thread keeps its own and they are merged once the threads finish.
+ */
+class LatencySamples {
+    private long[] samples = new long[1024];
+    private int count;
+
+    void add(long nanos) {
+        if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+        samples[count++] = nanos;
+    }
+
+    void addAll(LatencySamples other) {
+        for (int i = 0; i < other.count; i++) add(other.samples[i]);
+    }
+
+    /**
+     * The value below which the given fraction of samples fall.
+     *
+     * @param fraction a value between 0 and 1
+     * @return the percentile in nanoseconds, or 0 if there are no samples
+     */
+    long percentile(double fraction) {
+        if (count == 0) return 0;
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(fraction * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
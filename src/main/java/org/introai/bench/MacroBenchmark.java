@@ -0,0 +1,221 @@
+package org.introai.bench;
+
+import org.introai.RandomSource;
+import org.introai.Simulation;
+import org.introai.bots.Bot;
+import org.introai.bots.BotType;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end throughput benchmark. Runs fixed-seed sweeps of full simulations over a grid of
+ * bots, ship sizes, thread counts, and q-values, and prints one CSV row per configuration:
+ * simulations per second, per-move p50/p99 latency, and bytes allocated per simulation.
+ * Given a previous CSV with --baseline, it also flags configurations whose throughput fell by
+ * more than the tolerance and exits with status 1 if there are any.
+ * <p>
+ * Usage: MacroBenchmark [--bots BOT1,BOT2] [--sizes 50,100] [--threads 1,4] [--q 0.2,0.5]
+ * [--runs N] [--warmup N] [--seed S] [--out results.csv] [--baseline old.csv] [--tolerance 0.1]
+ */
+public class MacroBenchmark {
+    private static final String HEADER =
+            "bot,size,threads,q,runs,wins,simsPerSec,p50MoveMicros,p99MoveMicros,allocBytesPerSim";
+
+    private final List<BotType> botTypes = new ArrayList<>(List.of(BotType.BOT1, BotType.BOT2, BotType.BOT3));
+    private final List<Integer> sizes = new ArrayList<>(List.of(50, 100, 200, 500, 1000));
+    private final List<Integer> threadCounts = new ArrayList<>(List.of(1, Runtime.getRuntime().availableProcessors()));
+    private final List<Double> qValues = new ArrayList<>(List.of(0.2, 0.5, 0.8));
+    private int runs = 20;
+    private int warmupRuns = 2;
+    private long seed = 1;
+    private Path out;
+    private Path baseline;
+    private double tolerance = 0.1;
+
+    public static void main(String[] args) throws Exception {
+        MacroBenchmark benchmark = new MacroBenchmark();
+        benchmark.parseArgs(args);
+        System.exit(benchmark.run());
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--bots" -> {
+                    botTypes.clear();
+                    for (String name : value.split(",")) botTypes.add(BotType.valueOf(name.trim()));
+                }
+                case "--sizes" -> {
+                    sizes.clear();
+                    for (String size : value.split(",")) sizes.add(Integer.parseInt(size.trim()));
+                }
+                case "--threads" -> {
+                    threadCounts.clear();
+                    for (String threads : value.split(",")) threadCounts.add(Integer.parseInt(threads.trim()));
+                }
+                case "--q" -> {
+                    qValues.clear();
+                    for (String q : value.split(",")) qValues.add(Double.parseDouble(q.trim()));
+                }
+                case "--runs" -> runs = Integer.parseInt(value);
+                case "--warmup" -> warmupRuns = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--out" -> out = Path.of(value);
+                case "--baseline" -> baseline = Path.of(value);
+                case "--tolerance" -> tolerance = Double.parseDouble(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (args.length % 2 != 0) throw new IllegalArgumentException("Missing value for " + args[args.length - 1]);
+    }
+
+    /**
+     * Runs every configuration and reports the results.
+     *
+     * @return 1 if a regression against the baseline was found, otherwise 0
+     * @throws Exception if a run fails or a file cannot be read or written
+     */
+    private int run() throws Exception {
+        ArrayList<String> rows = new ArrayList<>();
+        rows.add(HEADER);
+        System.out.println(HEADER);
+
+        for (BotType botType : botTypes) {
+            for (int size : sizes) {
+                for (int threads : threadCounts) {
+                    for (int qi = 0; qi < qValues.size(); qi++) {
+                        String row = measure(botType, size, threads, qi);
+                        rows.add(row);
+                        System.out.println(row);
+                    }
+                }
+            }
+        }
+
+        if (out != null) Files.write(out, rows, StandardCharsets.UTF_8);
+        if (baseline == null) return 0;
+        return compareToBaseline(rows, Files.readAllLines(baseline, StandardCharsets.UTF_8), System.out) ? 1 : 0;
+    }
+
+    /**
+     * Measures one configuration. Each run's seed depends only on its position in the grid,
+     * so the same simulations are timed at every thread count.
+     *
+     * @return the configuration's CSV row
+     */
+    private String measure(BotType botType, int size, int threads, int qi) throws Exception {
+        double q = qValues.get(qi);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            runBatch(pool, threads, botType, size, q, qi, -warmupRuns, 0);
+            long start = System.nanoTime();
+            BatchResult result = runBatch(pool, threads, botType, size, q, qi, 0, runs);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            return botType.name() + "," + size + "," + threads + "," + q + "," + runs + "," + result.wins + "," +
+                    String.format(Locale.ROOT, "%.3f", runs / seconds) + "," +
+                    String.format(Locale.ROOT, "%.1f", result.latencies.percentile(0.50) / 1e3) + "," +
+                    String.format(Locale.ROOT, "%.1f", result.latencies.percentile(0.99) / 1e3) + "," +
+                    (runs == 0 ? 0 : result.allocatedBytes / runs);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs simulations [firstRun, endRun) spread over the pool's threads.
+     */
+    private BatchResult runBatch(ExecutorService pool, int threads, BotType botType, int size, double q, int qi,
+                                 int firstRun, int endRun) throws Exception {
+        AtomicInteger nextRun = new AtomicInteger(firstRun);
+        ArrayList<Future<BatchResult>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                BatchResult partial = new BatchResult();
+                int run;
+                while ((run = nextRun.getAndIncrement()) < endRun) {
+                    long allocatedBefore = allocatedBytes();
+                    RandomSource random = RandomSource.seeded(RandomSource.mixSeed(seed, size, qi, run));
+                    Simulation sim = new Simulation(size, q, random.split());
+                    Bot bot = botType.create(sim.getShipMap(), random.split());
+                    if (sim.run(new TimedBot(bot, partial.latencies))) partial.wins++;
+                    partial.allocatedBytes += allocatedBytes() - allocatedBefore;
+                }
+                return partial;
+            }));
+        }
+
+        BatchResult total = new BatchResult();
+        for (Future<BatchResult> future : futures) {
+            BatchResult partial = future.get();
+            total.wins += partial.wins;
+            total.allocatedBytes += partial.allocatedBytes;
+            total.latencies.addAll(partial.latencies);
+        }
+        return total;
+    }
+
+    /**
+     * Bytes allocated so far by the calling thread, or 0 if the JVM cannot report it.
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadBean)
+            return threadBean.getCurrentThreadAllocatedBytes();
+        return 0;
+    }
+
+    /**
+     * Prints the throughput of each configuration relative to the baseline.
+     *
+     * @param rows the current results, header first
+     * @param baselineRows the baseline results, header first
+     * @param report where to print the comparison
+     * @return true if any configuration regressed by more than the tolerance
+     */
+    private boolean compareToBaseline(List<String> rows, List<String> baselineRows, PrintStream report) {
+        HashMap<String, Double> baselineThroughput = new HashMap<>();
+        for (String row : baselineRows.subList(1, baselineRows.size())) {
+            String[] fields = row.split(",");
+            baselineThroughput.put(configurationKey(fields), Double.parseDouble(fields[6]));
+        }
+
+        boolean regressed = false;
+        report.println("bot,size,threads,q,simsPerSec,baselineSimsPerSec,ratio,status");
+        for (String row : rows.subList(1, rows.size())) {
+            String[] fields = row.split(",");
+            Double previous = baselineThroughput.get(configurationKey(fields));
+            if (previous == null || previous == 0) continue;
+            double current = Double.parseDouble(fields[6]);
+            double ratio = current / previous;
+            String status = ratio < 1 - tolerance ? "REGRESSION" : ratio > 1 + tolerance ? "IMPROVED" : "OK";
+            if (status.equals("REGRESSION")) regressed = true;
+            report.println(configurationKey(fields) + "," + current + "," + previous + "," +
+                    String.format(Locale.ROOT, "%.3f", ratio) + "," + status);
+        }
+        return regressed;
+    }
+
+    private static String configurationKey(String[] fields) {
+        return fields[0] + "," + fields[1] + "," + fields[2] + "," + fields[3];
+    }
+
+    private static class BatchResult {
+        private int wins;
+        private long allocatedBytes;
+        private final LatencySamples latencies = new LatencySamples();
+    }
+}
@@ -0,0 +1,125 @@
+package org.introai.bench;
+
+import org.introai.Coordinate;
+import org.introai.RandomSource;
+import org.introai.ShipLayout;
+import org.introai.ShipMap;
+import org.introai.Simulation;
+import org.introai.bots.RolloutSampling;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures how accurately Bot4's danger maps are estimated with each rollout sampling
+ * scheme. A cell next to k burning cells ignites within T turns with probability
+ * 1 - (1 - q)^(kT), so the true danger map is known exactly and each estimate's error can be
+ * measured directly. For each scheme and rollout count, prints the mean squared error per
+ * fire-front cell, averaged over repeated estimates on ships partway through a run.
+ * <p>
+ * Usage: RolloutVariance [--size N] [--ships N] [--q 0.2,0.5] [--repeats N] [--turns T] [--seed S]
+ */
+public class RolloutVariance {
+    private int size = 50;
+    private int ships = 10;
+    private final List<Double> qValues = new ArrayList<>(List.of(0.1, 0.3, 0.5, 0.8));
+    private int repeats = 200;
+    private int turns = 20;
+    private long seed = 1;
+
+    public static void main(String[] args) {
+        RolloutVariance benchmark = new RolloutVariance();
+        benchmark.parseArgs(args);
+        benchmark.run();
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--size" -> size = Integer.parseInt(value);
+                case "--ships" -> ships = Integer.parseInt(value);
+                case "--q" -> {
+                    qValues.clear();
+                    for (String q : value.split(",")) qValues.add(Double.parseDouble(q.trim()));
+                }
+                case "--repeats" -> repeats = Integer.parseInt(value);
+                case "--turns" -> turns = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private void run() {
+        System.out.println("q,sampling,rollouts,msePerCell,nanosPerEstimate");
+        for (double q : qValues) {
+            List<ShipMap> states = new ArrayList<>();
+            for (int s = 0; s < ships; s++) {
+                RandomSource random = RandomSource.seeded(RandomSource.mixSeed(seed, s));
+                ShipMap shipMap = new ShipMap(ShipLayout.generate(size, random), q, random);
+                Simulation simulation = new Simulation(shipMap, random);
+                for (int tick = 0; tick < size / 5; tick++) simulation.simulateFireSpread();
+                states.add(shipMap);
+            }
+            report(states, q, RolloutSampling.PLAIN, 20);
+            report(states, q, RolloutSampling.PLAIN, 5);
+            report(states, q, RolloutSampling.ANTITHETIC, 6);
+            report(states, q, RolloutSampling.LATTICE, 5);
+        }
+    }
+
+    /**
+     * Prints the mean squared error per front cell of one scheme's estimates.
+     *
+     * @param states the ships to estimate danger maps for
+     * @param q the ships' flammability
+     * @param sampling the sampling scheme
+     * @param rollouts the number of rollouts behind each estimate
+     */
+    private void report(List<ShipMap> states, double q, RolloutSampling sampling, int rollouts) {
+        double squaredError = 0;
+        long cells = 0;
+        long nanos = 0;
+        for (int s = 0; s < states.size(); s++) {
+            ShipMap shipMap = states.get(s);
+            HashMap<Coordinate, Double> exact = exactDanger(shipMap, q);
+            RandomSource random = RandomSource.seeded(RandomSource.mixSeed(seed, s, rollouts, sampling.ordinal()));
+            for (int r = 0; r < repeats; r++) {
+                long start = System.nanoTime();
+                HashMap<Coordinate, Double> estimate = sampling.estimateDanger(shipMap, turns, rollouts, random);
+                nanos += System.nanoTime() - start;
+                for (var entry : exact.entrySet()) {
+                    double error = estimate.getOrDefault(entry.getKey(), 0.0) - entry.getValue();
+                    squaredError += error * error;
+                }
+                cells += exact.size();
+            }
+        }
+        System.out.printf(Locale.ROOT, "%.2f,%s,%d,%.6f,%d%n", q, sampling, rollouts,
+                cells == 0 ? 0 : squaredError / cells, nanos / ((long) states.size() * repeats));
+    }
+
+    /**
+     * The true probability that each fire-front cell ignites within the horizon.
+     *
+     * @param shipMap the ship's state
+     * @param q the ship's flammability
+     * @return a map from each open cell next to the fire to its probability of igniting
+     */
+    private HashMap<Coordinate, Double> exactDanger(ShipMap shipMap, double q) {
+        HashMap<Coordinate, Double> exact = new HashMap<>();
+        for (int index = 0; index < shipMap.getCellCount(); index++) {
+            if (!shipMap.isOpen(index)) continue;
+            int burning = 0;
+            for (int direction = 0; direction < ShipMap.DIRECTIONS; direction++) {
+                int neighbor = shipMap.neighborIndex(index, direction);
+                if (neighbor >= 0 && shipMap.isOnFire(neighbor)) burning++;
+            }
+            if (burning > 0) exact.put(shipMap.coordinateOf(index), 1 - Math.pow(1 - q, (double) burning * turns));
+        }
+        return exact;
+    }
+}
@@ -0,0 +1,25 @@
+package org.introai.bench;
+
+import org.introai.bots.Bot;
+
+/**
+ * Wraps another bot and records how long each of its moves takes.
+ */
+class TimedBot extends Bot {
+    private final Bot delegate;
+    private final LatencySamples samples;
+
+    TimedBot(Bot delegate, LatencySamples samples) {
+        super(delegate.getShipMap());
+        this.delegate = delegate;
+        this.samples = samples;
+    }
+
+    @Override
+    public boolean makeAMove() {
+        long start = System.nanoTime();
+        boolean result = delegate.makeAMove();
+        samples.add(System.nanoTime() - start);
+        return result;
+    }
+}
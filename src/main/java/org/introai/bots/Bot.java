@@ -1,12 +1,29 @@
 package org.introai.bots;
 
+import org.introai.RandomSource;
 import org.introai.ShipMap;
 
 public abstract class Bot {
     protected final ShipMap shipMap;
+    protected final RandomSource random;
 
     public Bot(ShipMap shipMap) {
+        this(shipMap, RandomSource.unseeded());
+    }
+
+    /**
+     * Creates a bot whose own random decisions, if it makes any, are drawn from the given source.
+     *
+     * @param shipMap the ship the bot moves on
+     * @param random the source of the bot's random decisions
+     */
+    public Bot(ShipMap shipMap, RandomSource random) {
         this.shipMap = shipMap;
+        this.random = random;
+    }
+
+    public ShipMap getShipMap() {
+        return shipMap;
     }
 
     /**
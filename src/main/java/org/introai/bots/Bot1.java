@@ -1,20 +1,23 @@
 package org.introai.bots;
 
 import org.introai.Coordinate;
+import org.introai.RandomSource;
 import org.introai.Search;
 import org.introai.ShipMap;
 
-import java.util.ArrayList;
-
 public class Bot1 extends Bot {
     private boolean firstRun;
-    private ArrayList<Coordinate> plan;
+    private SearchResult plan;
     private int planIndex;
 
     public Bot1(ShipMap shipMap) {
-        super(shipMap);
+        this(shipMap, RandomSource.unseeded());
+    }
+
+    public Bot1(ShipMap shipMap, RandomSource random) {
+        super(shipMap, random);
         this.firstRun = true;
-        this.planIndex = 1;
+        this.planIndex = 0;
     }
 
     /**
@@ -28,14 +31,8 @@ public class Bot1 extends Bot {
                 return false;
             firstRun = false;
         }
-        Coordinate curr = shipMap.getBotLocation();
-        Coordinate nextMove = plan.get(planIndex);
+        shipMap.move(plan.moveAt(planIndex));
         planIndex++;
-        if (nextMove.equals(curr.getAbove())) shipMap.moveBotUp();
-        else if (nextMove.equals(curr.getBelow())) shipMap.moveBotDown();
-        else if (nextMove.equals(curr.getLeft())) shipMap.moveBotLeft();
-        else if (nextMove.equals(curr.getRight())) shipMap.moveBotRight();
-        else throw new RuntimeException("Invalid plan. This move is not possible.");
         return true;
     }
 
@@ -49,7 +46,7 @@ public class Bot1 extends Bot {
         Coordinate goalLocation = shipMap.getGoalLocation();
         SearchResult result = Search.aStarSearch(botStartLocation, goalLocation, shipMap);
         if (result != null) {
-            plan = result.getPath();
+            plan = result;
             return true;
         }
         return false;
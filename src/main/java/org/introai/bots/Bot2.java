@@ -1,16 +1,19 @@
 package org.introai.bots;
 
 import org.introai.Coordinate;
+import org.introai.RandomSource;
 import org.introai.Search;
 import org.introai.ShipMap;
 
-import java.util.ArrayList;
-
 public class Bot2 extends Bot {
-    private ArrayList<Coordinate> plan;
+    private SearchResult plan;
 
     public Bot2(ShipMap shipMap) {
-        super(shipMap);
+        this(shipMap, RandomSource.unseeded());
+    }
+
+    public Bot2(ShipMap shipMap, RandomSource random) {
+        super(shipMap, random);
     }
 
     /**
@@ -21,13 +24,7 @@ public class Bot2 extends Bot {
     public boolean makeAMove() {
         if (!createPlan())
             return false;
-        Coordinate curr = shipMap.getBotLocation();
-        Coordinate nextMove = plan.get(1);
-        if (nextMove.equals(curr.getAbove())) shipMap.moveBotUp();
-        else if (nextMove.equals(curr.getBelow())) shipMap.moveBotDown();
-        else if (nextMove.equals(curr.getLeft())) shipMap.moveBotLeft();
-        else if (nextMove.equals(curr.getRight())) shipMap.moveBotRight();
-        else throw new RuntimeException("Invalid plan. This move is not possible.");
+        shipMap.move(plan.firstMove());
         return true;
     }
 
@@ -41,7 +38,7 @@ public class Bot2 extends Bot {
         Coordinate goalLocation = shipMap.getGoalLocation();
         SearchResult result = Search.aStarSearch(botStartLocation, goalLocation, shipMap);
         if (result != null) {
-            plan = result.getPath();
+            plan = result;
             return true;
         }
         return false;
@@ -1,16 +1,21 @@
 package org.introai.bots;
 
 import org.introai.Coordinate;
+import org.introai.CostModel;
+import org.introai.FireFront;
+import org.introai.RandomSource;
 import org.introai.Search;
 import org.introai.ShipMap;
 
-import java.util.ArrayList;
-
 public class Bot3 extends Bot {
-    private ArrayList<Coordinate> plan;
+    private SearchResult plan;
 
     public Bot3(ShipMap shipMap) {
-        super(shipMap);
+        this(shipMap, RandomSource.unseeded());
+    }
+
+    public Bot3(ShipMap shipMap, RandomSource random) {
+        super(shipMap, random);
     }
 
     /**
@@ -22,13 +27,7 @@ public class Bot3 extends Bot {
     public boolean makeAMove() {
         if (!createPlan())
             return false;
-        Coordinate curr = shipMap.getBotLocation();
-        Coordinate nextMove = plan.get(1);
-        if (nextMove.equals(curr.getAbove())) shipMap.moveBotUp();
-        else if (nextMove.equals(curr.getBelow())) shipMap.moveBotDown();
-        else if (nextMove.equals(curr.getLeft())) shipMap.moveBotLeft();
-        else if (nextMove.equals(curr.getRight())) shipMap.moveBotRight();
-        else throw new RuntimeException("Invalid plan. This move is not possible.");
+        shipMap.move(plan.firstMove());
         return true;
     }
 
@@ -41,19 +40,14 @@ public class Bot3 extends Bot {
     private boolean createPlan() {
         Coordinate botStartLocation = shipMap.getBotLocation();
         Coordinate goalLocation = shipMap.getGoalLocation();
-        SearchResult result;
-
-        // Try to avoid cells adjacent to fire
-        result = Search.aStarSearchAvoidFire(botStartLocation, goalLocation, shipMap);
-        if (result != null) {
-            plan = result.getPath();
-            return true;
-        }
+        FireFront fireAdjacent = shipMap.getFireFront();
 
-        // If not possible, do the normal pathfinding
-        result = Search.aStarSearch(botStartLocation, goalLocation, shipMap);
+        // Entering fewer fire-adjacent cells always beats a shorter path, so one search
+        // finds a path that avoids them entirely whenever there is one
+        CostModel avoidFire = cell -> fireAdjacent.contains(cell) ? CostModel.of(1, 1) : 1;
+        SearchResult result = Search.aStar(botStartLocation, goalLocation, shipMap, avoidFire);
         if (result != null) {
-            plan = result.getPath();
+            plan = result;
             return true;
         }
         return false;
@@ -1,19 +1,94 @@
 package org.introai.bots;
 
 import org.introai.Coordinate;
+import org.introai.IgnitionRolls;
+import org.introai.RandomSource;
 import org.introai.ShipMap;
 import org.introai.Search;
 import org.introai.Simulation;
+import org.introai.TranspositionCache;
+import org.introai.events.RolloutBatchEvent;
 
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 
 public class Bot4 extends Bot {
-    private ArrayList<Coordinate> plan;
+    private static final int TURNS_INTO_FUTURE = 20;
+    // The budget of bots created without one, so sweeps can evaluate the other named budgets
+    private static final PlanningBudget DEFAULT_BUDGET =
+            PlanningBudget.named(System.getProperty("bot4.budget", "FIXED"));
+    private static final TranspositionCache<HashMap<Coordinate, Double>> SHARED_DANGER_CACHE =
+            createSharedDangerCache();
+
+    private final PlanningBudget budget;
+    private SearchResult plan;
+    private TranspositionCache<HashMap<Coordinate, Double>> dangerCache;
 
     public Bot4(ShipMap shipMap) {
-        super(shipMap);
+        this(shipMap, DEFAULT_BUDGET);
+    }
+
+    public Bot4(ShipMap shipMap, RandomSource random) {
+        this(shipMap, DEFAULT_BUDGET, random);
+    }
+
+    /**
+     * Creates a bot that spends at most the given budget on each move.
+     *
+     * @param shipMap the ship the bot moves on
+     * @param budget the limits on fire simulations per move
+     */
+    public Bot4(ShipMap shipMap, PlanningBudget budget) {
+        this(shipMap, budget, RandomSource.unseeded());
+    }
+
+    /**
+     * Creates a bot that spends at most the given budget on each move.
+     *
+     * @param shipMap the ship the bot moves on
+     * @param budget the limits on fire simulations per move
+     * @param random the source of the bot's simulated fires
+     */
+    public Bot4(ShipMap shipMap, PlanningBudget budget, RandomSource random) {
+        super(shipMap, random);
+        this.budget = budget;
+        this.dangerCache = SHARED_DANGER_CACHE;
+    }
+
+    /**
+     * Creates the danger map cache shared by every Bot4 if the "bot4.dangerCacheEntries"
+     * system property is positive.
+     *
+     * @return the shared cache, or null if sharing is disabled
+     */
+    private static TranspositionCache<HashMap<Coordinate, Double>> createSharedDangerCache() {
+        int entries = Integer.getInteger("bot4.dangerCacheEntries", 0);
+        if (entries <= 0) return null;
+        return new TranspositionCache<>(entries, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Detects whether every Bot4 shares one danger map cache, as the "bot4.dangerCacheEntries"
+     * system property asks. A run's outcome then depends on which runs this JVM made before
+     * it, not only on its seed.
+     *
+     * @return true if the shared cache is enabled, otherwise false
+     */
+    public static boolean sharesDangerMaps() {
+        return SHARED_DANGER_CACHE != null;
+    }
+
+    /**
+     * Sets where the bot looks up and stores danger maps. When the bot meets a ship state it
+     * has already planned for, it reuses the cached map instead of running new simulations.
+     * Runs that share a cache also share that map's sampling noise, so results are no longer
+     * independent across those runs.
+     *
+     * @param dangerCache the cache to use, or null to always simulate
+     */
+    public void setDangerCache(TranspositionCache<HashMap<Coordinate, Double>> dangerCache) {
+        this.dangerCache = dangerCache;
     }
 
     /**
@@ -24,17 +99,9 @@ public class Bot4 extends Bot {
      * @return
      */
     public boolean makeAMove() {
-//        System.out.println(shipMap);
         if (!createPlan())
             return false;
-        Coordinate curr = shipMap.getBotLocation();
-        Coordinate nextMove = plan.get(1);
-//        System.out.println("Moving to: " + nextMove);
-        if (nextMove.equals(curr.getAbove())) shipMap.moveBotUp();
-        else if (nextMove.equals(curr.getBelow())) shipMap.moveBotDown();
-        else if (nextMove.equals(curr.getLeft())) shipMap.moveBotLeft();
-        else if (nextMove.equals(curr.getRight())) shipMap.moveBotRight();
-        else throw new RuntimeException("Invalid plan. This move is not possible.");
+        shipMap.move(plan.firstMove());
         return true;
     }
 
@@ -45,47 +112,181 @@ public class Bot4 extends Bot {
      * @return true if a route is possible, otherwise false
      */
     private boolean createPlan() {
-        final int NUMBER_FIRE_SIMS = 20;
-        final int TURNS_INTO_FUTURE = 20;
         Coordinate botStartLocation = shipMap.getBotLocation();
         Coordinate goalLocation = shipMap.getGoalLocation();
-        HashMap<Coordinate, Double> dangerousCells =
-                generateFireProbabilities(NUMBER_FIRE_SIMS, TURNS_INTO_FUTURE);
+        int turnsIntoFuture = TURNS_INTO_FUTURE;
+
+        // No danger map can open a path to a goal the fire has already cut off
+        if (!Search.isReachable(shipMap, botStartLocation, goalLocation)) return false;
+
+        // Fire that arrives after the bot has reached the goal cannot affect the route
+        if (budget.shortensHorizon() && plan != null)
+            turnsIntoFuture = Math.max(1, Math.min(turnsIntoFuture, plan.getDistanceFromStartToEnd() - 1));
+        HashMap<Coordinate, Double> dangerousCells;
+        if (budget.boundsRegion()) {
+            // Fire the bot cannot reach within the horizon cannot burn it within the horizon either
+            BitSet region = Search.reachableWithin(shipMap, shipMap.getBotIndex(), turnsIntoFuture);
+            if (shipMap.getFireFront().intersects(region))
+                dangerousCells = cachedFireProbabilities(turnsIntoFuture, region);
+            else
+                dangerousCells = new HashMap<>();
+        } else {
+            dangerousCells = cachedFireProbabilities(turnsIntoFuture, null);
+        }
         SearchResult result;
 
         result = Search.fireSimAStarSearch(botStartLocation, goalLocation, dangerousCells, shipMap);
         if (result != null) {
-            plan = result.getPath();
+            plan = result;
             return true;
         }
         return false;
     }
 
+    /**
+     * Looks up the danger map for the current fire in the cache, generating and storing it
+     * if it is not there. The map depends only on the layout, the burning cells, q, the
+     * horizon, and the budget the rollouts were run under, so the bot's own location is only
+     * part of the key when the region around it bounds the simulations.
+     *
+     * @param turnsIntoFuture how many turns into the future each simulation will look at
+     * @param region the indices of the cells to simulate, or null to simulate the whole ship
+     * @return a map of the probability that each cell will ignite in the next turnsIntoFuture turns
+     */
+    private HashMap<Coordinate, Double> cachedFireProbabilities(int turnsIntoFuture, BitSet region) {
+        if (dangerCache == null) return generateFireProbabilities(turnsIntoFuture, region);
+        // Bounded rollouts depend on where the bot is, so they are keyed on the whole state
+        long stateHash = region == null ? shipMap.getLayoutHash() ^ shipMap.getFireHash() :
+                shipMap.getStateHash();
+        long key = RandomSource.mixSeed(stateHash, Double.doubleToLongBits(shipMap.getFlammability()),
+                turnsIntoFuture, budget.fingerprint(), region == null ? 0 : 1);
+        HashMap<Coordinate, Double> probabilities = dangerCache.get(key);
+        if (probabilities == null) {
+            probabilities = generateFireProbabilities(turnsIntoFuture, region);
+            dangerCache.put(key, probabilities);
+        }
+        return probabilities;
+    }
+
     /**
      * Generates the probability that fire will spread to cells in upcoming turns.
      * Cells with no observed ignition and cells ignited beforehand are not included
-     * in the result.
+     * in the result. Simulations are added in batches until the estimate converges
+     * or the budget runs out.
      *
-     * @param numberSimulations the number of simulations that will be averaged together
      * @param turnsIntoFuture how many turns into the future each simulation will look at
+     * @param region the indices of the cells to simulate, or null to simulate the whole ship
      * @return a map of the probability that each cell will ignite in the next turnsIntoFuture turns
      */
-    private HashMap<Coordinate, Double> generateFireProbabilities(int numberSimulations, int turnsIntoFuture) {
-        HashMap<Coordinate, Double> probabilities = new HashMap<>();
-        for (int i = 0; i < numberSimulations; i++) {
+    private HashMap<Coordinate, Double> generateFireProbabilities(int turnsIntoFuture, BitSet region) {
+        HashMap<Coordinate, Double> ignitionCounts = new HashMap<>();
+        HashMap<Coordinate, Double> previousCounts = new HashMap<>();
+        long deadline = System.nanoTime() + budget.getMaxNanosPerMove();
+        int numberSimulations = 0;
+
+        while (numberSimulations < budget.getMaxRollouts()) {
+            int batch = Math.min(budget.getBatchSize(), budget.getMaxRollouts() - numberSimulations);
+            RolloutBatchEvent event = new RolloutBatchEvent();
+            event.begin();
+            int cellsIgnited = runBatch(shipMap, turnsIntoFuture, batch, budget.getSampling(), region, random,
+                    ignitionCounts);
+            event.end();
+            if (event.shouldCommit()) {
+                event.rollouts = batch;
+                event.turnsIntoFuture = turnsIntoFuture;
+                event.cellsIgnited = cellsIgnited;
+                event.commit();
+            }
+            int previousSimulations = numberSimulations;
+            numberSimulations += batch;
+
+            if (System.nanoTime() - deadline >= 0) break;
+            if (numberSimulations >= budget.getMinRollouts() &&
+                    hasConverged(ignitionCounts, numberSimulations, previousCounts, previousSimulations))
+                break;
+            previousCounts.clear();
+            previousCounts.putAll(ignitionCounts);
+        }
+
+        final int totalSimulations = numberSimulations;
+        ignitionCounts.replaceAll((c, v) -> v / totalSimulations);
+        return ignitionCounts;
+    }
+
+    /**
+     * Estimates the probability that each cell ignites within the next turns from a fixed
+     * number of rollouts, without a budget or convergence checks.
+     *
+     * @param shipMap the ship's current state, which is not changed
+     * @param turnsIntoFuture how many turns into the future each rollout looks
+     * @param rollouts how many rollouts make up the single batch
+     * @param sampling how the rollouts' ignition rolls relate to each other
+     * @param random the source of the rollouts
+     * @return a map of the probability that each cell will ignite in the next turnsIntoFuture turns
+     */
+    static HashMap<Coordinate, Double> estimateDanger(ShipMap shipMap, int turnsIntoFuture, int rollouts,
+                                                      RolloutSampling sampling, RandomSource random) {
+        HashMap<Coordinate, Double> ignitionCounts = new HashMap<>();
+        runBatch(shipMap, turnsIntoFuture, rollouts, sampling, null, random, ignitionCounts);
+        ignitionCounts.replaceAll((c, v) -> v / rollouts);
+        return ignitionCounts;
+    }
+
+    /**
+     * Runs one batch of rollouts and adds each predicted ignition to the counts. With
+     * ANTITHETIC or LATTICE sampling the batch shares one seed, so its rollouts are one
+     * antithetic set or one lattice.
+     *
+     * @param shipMap the ship's current state, which is not changed
+     * @param turnsIntoFuture how many turns into the future each rollout looks
+     * @param batch how many rollouts to run
+     * @param sampling how the rollouts' ignition rolls relate to each other
+     * @param region the indices of the cells to simulate, or null to simulate the whole ship
+     * @param random the source of the rollouts
+     * @param ignitionCounts the number of rollouts in which each cell ignited, updated in place
+     * @return the total number of ignitions across the batch
+     */
+    private static int runBatch(ShipMap shipMap, int turnsIntoFuture, int batch, RolloutSampling sampling,
+                                BitSet region, RandomSource random, HashMap<Coordinate, Double> ignitionCounts) {
+        long batchSeed = sampling == RolloutSampling.PLAIN ? 0 : random.nextLong();
+        int cellsIgnited = 0;
+        for (int i = 0; i < batch; i++) {
             ShipMap shipCopy = shipMap.copyState();
-            Simulation fireSim = new Simulation(shipCopy);
-            HashSet<Coordinate> ignited = fireSim.firePrediction(turnsIntoFuture);
+            Simulation fireSim = new Simulation(shipCopy, random);
+            fireSim.setRegion(region);
+            IgnitionRolls rolls = sampling.rollsFor(batchSeed, i, batch);
+            HashSet<Coordinate> ignited = rolls == null ? fireSim.firePrediction(turnsIntoFuture)
+                    : fireSim.firePrediction(turnsIntoFuture, rolls);
+            cellsIgnited += ignited.size();
             for (Coordinate cell : ignited) {
-                if (probabilities.containsKey(cell)) {
-                    probabilities.put(cell, probabilities.get(cell) + 1.0);
+                if (ignitionCounts.containsKey(cell)) {
+                    ignitionCounts.put(cell, ignitionCounts.get(cell) + 1.0);
                 } else {
-                    probabilities.put(cell, 1.0);
+                    ignitionCounts.put(cell, 1.0);
                 }
             }
         }
+        return cellsIgnited;
+    }
 
-        probabilities.replaceAll((c, v) -> probabilities.get(c) / numberSimulations);
-        return probabilities;
+    /**
+     * Decides whether the latest batch of simulations changed any cell's estimated
+     * probability of igniting by more than the budget's tolerance.
+     *
+     * @param counts the ignition counts including the latest batch
+     * @param simulations the number of simulations behind counts
+     * @param previousCounts the ignition counts before the latest batch
+     * @param previousSimulations the number of simulations behind previousCounts
+     * @return true if the estimate has converged, otherwise false
+     */
+    private boolean hasConverged(HashMap<Coordinate, Double> counts, int simulations,
+                                 HashMap<Coordinate, Double> previousCounts, int previousSimulations) {
+        if (previousSimulations == 0) return false;
+        for (Coordinate cell : counts.keySet()) {
+            double current = counts.get(cell) / simulations;
+            double previous = previousCounts.getOrDefault(cell, 0.0) / previousSimulations;
+            if (Math.abs(current - previous) > budget.getConvergenceTolerance()) return false;
+        }
+        return true;
     }
 }
@@ -0,0 +1,317 @@
+package org.introai.bots;
+
+import org.introai.Coordinate;
+import org.introai.Direction;
+import org.introai.EventFireEngine;
+import org.introai.FireTrajectory;
+import org.introai.RandomSource;
+import org.introai.Search;
+import org.introai.ShipMap;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bot that plans with Monte Carlo tree search over its own moves. Each iteration samples a
+ * whole future fire at once with the event-driven engine, walks down the tree of move
+ * sequences choosing moves by UCT, and finishes the run with a cheap default policy: follow a
+ * shortest path and replan only when the next step is burning. The tree is open-loop, so a
+ * node stands for a sequence of moves and its statistics average over every fire sampled
+ * beneath it.
+ * <p>
+ * Detours barely change a move's estimated chance of winning, so the bot makes the default
+ * policy's move unless another move's win rate is better by more than its sampling error.
+ * <p>
+ * Iterations can run on several threads. A thread counts its visit to each node on the way
+ * down, before the result is known, so other threads see that move as a temporary loss and
+ * spread out over the tree (virtual loss). With more than one thread the moves chosen depend
+ * on scheduling, so runs are only reproducible from a seed with a single thread.
+ * <p>
+ * After each move the subtree under the chosen move becomes the new root, so the work spent
+ * on it is not thrown away.
+ */
+public class Bot5 extends Bot {
+    /**
+     * The default budget: 64 iterations per move with no time limit, so seeded runs are
+     * reproducible. A wall-clock limit can be added with the "bot5.maxMillisPerMove" system
+     * property.
+     */
+    public static final PlanningBudget DEFAULT_BUDGET = createDefaultBudget();
+
+    private static final double EXPLORATION = Math.sqrt(2);
+    private static final int DEFAULT_THREADS = Integer.getInteger("bot5.threads", 1);
+
+    private final PlanningBudget budget;
+    private final int threads;
+    private Node root;
+
+    public Bot5(ShipMap shipMap) {
+        this(shipMap, RandomSource.unseeded());
+    }
+
+    public Bot5(ShipMap shipMap, RandomSource random) {
+        this(shipMap, DEFAULT_BUDGET, DEFAULT_THREADS, random);
+    }
+
+    /**
+     * Creates a bot that spends at most the given budget on each move.
+     *
+     * @param shipMap the ship the bot moves on
+     * @param budget the limits on iterations and time per move; only getMaxRollouts and
+     *               getMaxNanosPerMove are used
+     * @param threads how many threads run iterations for each move
+     * @param random the source of the bot's simulated fires
+     */
+    public Bot5(ShipMap shipMap, PlanningBudget budget, int threads, RandomSource random) {
+        super(shipMap, random);
+        if (threads < 1) throw new IllegalArgumentException("Threads must be at least 1, not " + threads);
+        this.budget = budget;
+        this.threads = threads;
+        this.root = new Node();
+    }
+
+    /**
+     * Creates the default budget, limited in time only if the "bot5.maxMillisPerMove" system
+     * property is positive. A time limit makes the number of iterations, and so the moves
+     * chosen, depend on how fast the machine is.
+     *
+     * @return the budget used by bots created without one
+     */
+    private static PlanningBudget createDefaultBudget() {
+        long maxMillis = Long.getLong("bot5.maxMillisPerMove", 0);
+        long maxNanos = maxMillis > 0 ? maxMillis * 1_000_000L : Long.MAX_VALUE;
+        return new PlanningBudget(1, 64, 1, maxNanos, 0.0, false);
+    }
+
+    /**
+     * The bot searches the tree of its possible moves, then makes the default policy's move
+     * unless search found a clearly better one. If the goal cannot be reached, every move
+     * would lose, so the bot does not move.
+     *
+     * @return true if the bot could move, otherwise false
+     */
+    public boolean makeAMove() {
+        if (!Search.isReachable(shipMap, shipMap.getBotLocation(), shipMap.getGoalLocation())) return false;
+
+        search();
+
+        int botIndex = shipMap.getBotIndex();
+        int bestDirection = defaultDirection(shipMap);
+        double bestLowerBound = winRate(bestDirection);
+        for (int direction = 0; direction < ShipMap.DIRECTIONS; direction++) {
+            if (!isLegal(shipMap, botIndex, direction) || direction == bestDirection) continue;
+            Node child = root.children.get(direction);
+            if (child == null || child.visits.get() == 0) continue;
+            double rate = winRate(direction);
+            double lowerBound = rate - Math.sqrt(rate * (1 - rate) / child.visits.get());
+            if (lowerBound > bestLowerBound) {
+                bestLowerBound = lowerBound;
+                bestDirection = direction;
+            }
+        }
+        shipMap.move(Direction.of(bestDirection));
+        Node child = root.children.get(bestDirection);
+        root = child == null ? new Node() : child;
+        return true;
+    }
+
+    /**
+     * The move the default policy would make from the bot's actual location.
+     *
+     * @param shipState the ship's state, on which the goal must be reachable
+     * @return the direction of the first step on a shortest path
+     */
+    private static int defaultDirection(ShipMap shipState) {
+        SearchResult result = Search.aStarSearch(shipState.getBotLocation(), shipState.getGoalLocation(), shipState);
+        return result.firstMove().ordinal();
+    }
+
+    /**
+     * The fraction of iterations through a child of the root that ended in a win.
+     *
+     * @param direction the child's direction
+     * @return the child's win rate, or 0 if it was never visited
+     */
+    private double winRate(int direction) {
+        Node child = root.children.get(direction);
+        if (child == null || child.visits.get() == 0) return 0;
+        return (double) child.wins.get() / child.visits.get();
+    }
+
+    /**
+     * Runs iterations from the root until the budget runs out. The calling thread always
+     * takes part; extra threads take iterations from the same counter, so the total never
+     * exceeds the budget however many of them get to run.
+     */
+    private void search() {
+        AtomicInteger remaining = new AtomicInteger(budget.getMaxRollouts());
+        long deadline = System.nanoTime() + budget.getMaxNanosPerMove();
+        ArrayList<ForkJoinTask<?>> helpers = new ArrayList<>();
+        for (int i = 1; i < threads; i++) {
+            RandomSource helperRandom = random.split();
+            helpers.add(ForkJoinPool.commonPool().submit(() -> iterate(remaining, deadline, helperRandom)));
+        }
+        iterate(remaining, deadline, random);
+        for (ForkJoinTask<?> helper : helpers) helper.join();
+    }
+
+    /**
+     * Runs iterations until none remain or the deadline passes.
+     *
+     * @param remaining the number of iterations left for this move, shared by every thread
+     * @param deadline the System.nanoTime value after which no new iteration starts
+     * @param threadRandom a source used only by the calling thread
+     */
+    private void iterate(AtomicInteger remaining, long deadline, RandomSource threadRandom) {
+        while (remaining.getAndDecrement() > 0) {
+            runIteration(threadRandom);
+            if (System.nanoTime() - deadline >= 0) break;
+        }
+    }
+
+    /**
+     * Selects and expands one path through the tree on a freshly sampled fire, plays the rest
+     * of the run out with the default policy, and adds the result to every node on the path.
+     *
+     * @param threadRandom a source used only by the calling thread
+     */
+    private void runIteration(RandomSource threadRandom) {
+        Playout playout = new Playout(shipMap, new EventFireEngine(shipMap, threadRandom).run());
+        ShipMap shipCopy = playout.shipState;
+        ArrayList<Node> path = new ArrayList<>();
+        Node node = root;
+        node.visits.incrementAndGet();
+        path.add(node);
+        int value = -1;
+
+        while (value < 0) {
+            int botIndex = shipCopy.getBotIndex();
+            int direction = -1;
+            boolean expanded = false;
+            for (int d = 0; d < ShipMap.DIRECTIONS && direction < 0; d++) {
+                if (isLegal(shipCopy, botIndex, d) && node.children.get(d) == null) {
+                    node.children.compareAndSet(d, null, new Node());
+                    direction = d;
+                    expanded = true;
+                }
+            }
+            if (direction < 0) direction = selectChild(node, shipCopy, botIndex);
+            if (direction < 0) {
+                value = 0;
+                break;
+            }
+
+            node = node.children.get(direction);
+            node.visits.incrementAndGet();
+            path.add(node);
+            shipCopy.move(Direction.of(direction));
+            value = playout.step();
+            if (value < 0 && expanded) value = rollout(playout);
+        }
+
+        if (value > 0)
+            for (Node visited : path) visited.wins.incrementAndGet();
+    }
+
+    /**
+     * Chooses the legal child with the highest upper confidence bound.
+     *
+     * @param node the node to choose from
+     * @param shipState the sampled ship, which decides which moves are legal
+     * @param botIndex the index of the bot's cell
+     * @return the direction of the chosen child, or -1 if no move is legal
+     */
+    private int selectChild(Node node, ShipMap shipState, int botIndex) {
+        double logVisits = Math.log(Math.max(1, node.visits.get()));
+        int bestDirection = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int direction = 0; direction < ShipMap.DIRECTIONS; direction++) {
+            if (!isLegal(shipState, botIndex, direction)) continue;
+            Node child = node.children.get(direction);
+            int visits = Math.max(1, child.visits.get());
+            double score = (double) child.wins.get() / visits + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (score > bestScore) {
+                bestScore = score;
+                bestDirection = direction;
+            }
+        }
+        return bestDirection;
+    }
+
+    /**
+     * Plays the run out by following a shortest path to the goal, replanning whenever the
+     * next cell on the path has caught fire.
+     *
+     * @param playout the sampled run, which is advanced to its end
+     * @return 1 if the bot reaches the goal, otherwise 0
+     */
+    private static int rollout(Playout playout) {
+        ShipMap shipState = playout.shipState;
+        SearchResult plan = null;
+        int next = 0;
+        while (true) {
+            if (plan == null ||
+                    shipState.isOnFire(shipState.neighborIndex(shipState.getBotIndex(), plan.moveAt(next).ordinal()))) {
+                plan = Search.aStarSearch(shipState.getBotLocation(), shipState.getGoalLocation(), shipState);
+                if (plan == null) return 0;
+                next = 0;
+            }
+            shipState.move(plan.moveAt(next++));
+            int value = playout.step();
+            if (value >= 0) return value;
+        }
+    }
+
+    /**
+     * Detects whether the bot can step in a direction without walking into a wall or fire.
+     *
+     * @param shipState the ship's state
+     * @param botIndex the index of the bot's cell
+     * @param direction ABOVE, BELOW, LEFT, or RIGHT
+     * @return true if the move is legal, otherwise false
+     */
+    private static boolean isLegal(ShipMap shipState, int botIndex, int direction) {
+        int neighbor = shipState.neighborIndex(botIndex, direction);
+        return neighbor >= 0 && shipState.isOpen(neighbor);
+    }
+
+    /**
+     * One sampled run: a copy of the ship and the fire it will follow.
+     */
+    private static class Playout {
+        private final ShipMap shipState;
+        private final FireTrajectory fire;
+        private int tick;
+
+        private Playout(ShipMap shipMap, FireTrajectory fire) {
+            this.shipState = shipMap.copyState();
+            this.fire = fire;
+        }
+
+        /**
+         * Finishes a tick after the bot has moved, with the same rules as Simulation.run.
+         *
+         * @return 1 if the bot reached the goal, 0 if the bot or the goal is burning, otherwise -1
+         */
+        private int step() {
+            if (shipState.getBotLocation().equals(shipState.getGoalLocation())) return 1;
+            tick++;
+            for (Coordinate cell : fire.cellsIgnitedAt(tick)) shipState.igniteCell(cell);
+            if (shipState.isOnFire(shipState.getBotLocation()) || shipState.isOnFire(shipState.getGoalLocation()))
+                return 0;
+            return -1;
+        }
+    }
+
+    /**
+     * A sequence of moves from the root. Counts are updated by every searching thread.
+     */
+    private static class Node {
+        private final AtomicInteger visits = new AtomicInteger();
+        private final AtomicInteger wins = new AtomicInteger();
+        private final AtomicReferenceArray<Node> children = new AtomicReferenceArray<>(ShipMap.DIRECTIONS);
+    }
+}
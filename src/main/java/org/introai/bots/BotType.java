@@ -0,0 +1,91 @@
+package org.introai.bots;
+
+import org.introai.RandomSource;
+import org.introai.ShipMap;
+
+import java.util.ArrayList;
+import java.util.function.BiFunction;
+
+/**
+ * The bots that can be evaluated by a sweep, in the order they are reported. Each bot has a
+ * version that identifies its behavior in cached results; bump it whenever a change to the
+ * bot can change the outcome of a run, so results from the old behavior are not reused.
+ * <p>
+ * Sweeps evaluate the bots named by the "sweep.bots" system property, a comma-separated list
+ * such as "BOT1,BOT5". Without it they evaluate every bot except the ones that are too slow
+ * to include by default.
+ */
+public enum BotType {
+    BOT1("Bot 1", 2, true, Bot1::new),
+    BOT2("Bot 2", 2, true, Bot2::new),
+    BOT3("Bot 3", 3, true, Bot3::new),
+    BOT4("Bot 4", 2, true, Bot4::new),
+    // Tree search takes far longer per move than the other bots, so it only runs when asked for
+    BOT5("Bot 5", 3, false, Bot5::new);
+
+    private final String displayName;
+    private final int version;
+    private final boolean sweptByDefault;
+    private final BiFunction<ShipMap, RandomSource, Bot> constructor;
+
+    BotType(String displayName, int version, boolean sweptByDefault,
+            BiFunction<ShipMap, RandomSource, Bot> constructor) {
+        this.displayName = displayName;
+        this.version = version;
+        this.sweptByDefault = sweptByDefault;
+        this.constructor = constructor;
+    }
+
+    /**
+     * The bots a sweep should evaluate: the ones named by the "sweep.bots" system property, or
+     * every bot that is swept by default if it is not set.
+     *
+     * @return the bots to evaluate, in the order they are reported
+     * @throws IllegalArgumentException if the property names a bot that does not exist
+     */
+    public static BotType[] forSweep() {
+        String names = System.getProperty("sweep.bots");
+        ArrayList<BotType> botTypes = new ArrayList<>();
+        if (names == null) {
+            for (BotType botType : values()) {
+                if (botType.sweptByDefault) botTypes.add(botType);
+            }
+        } else {
+            for (String name : names.split(",")) {
+                BotType botType = valueOf(name.trim().toUpperCase());
+                if (!botTypes.contains(botType)) botTypes.add(botType);
+            }
+        }
+        botTypes.sort(null);
+        return botTypes.toArray(new BotType[0]);
+    }
+
+    /**
+     * Creates a new bot of this type on the given ship.
+     *
+     * @param shipMap the ship the bot will move on
+     * @return a new bot
+     */
+    public Bot create(ShipMap shipMap) {
+        return create(shipMap, RandomSource.unseeded());
+    }
+
+    /**
+     * Creates a new bot of this type on the given ship.
+     *
+     * @param shipMap the ship the bot will move on
+     * @param random the source of the bot's random decisions
+     * @return a new bot
+     */
+    public Bot create(ShipMap shipMap, RandomSource random) {
+        return constructor.apply(shipMap, random);
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+}
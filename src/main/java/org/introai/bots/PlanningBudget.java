@@ -0,0 +1,147 @@
+package org.introai.bots;
+
+import org.introai.RandomSource;
+
+/**
+ * How much work a sampling bot may spend deciding on a single move. Rollouts are run in
+ * batches until the danger estimate stops changing, the rollout limit is reached, or the
+ * time limit runs out, whichever comes first.
+ */
+public class PlanningBudget {
+    /** The original Bot4 behavior: always exactly 20 rollouts over the full horizon. */
+    public static final PlanningBudget FIXED = new PlanningBudget(20, 20, 20, Long.MAX_VALUE, 0.0, false);
+    /** A single batch of 5 lattice rollouts, which is about as accurate as FIXED. */
+    public static final PlanningBudget STRATIFIED =
+            new PlanningBudget(5, 5, 5, Long.MAX_VALUE, 0.0, false, RolloutSampling.LATTICE, false);
+    /** FIXED, with rollouts limited to the cells the bot can reach within the horizon. */
+    public static final PlanningBudget BOUNDED =
+            new PlanningBudget(20, 20, 20, Long.MAX_VALUE, 0.0, false, RolloutSampling.PLAIN, true);
+
+    /**
+     * Finds one of the named budgets, such as the value of the "bot4.budget" system property.
+     *
+     * @param name FIXED, STRATIFIED, or BOUNDED, in any case
+     * @return the budget with that name
+     * @throws IllegalArgumentException if no budget has that name
+     */
+    public static PlanningBudget named(String name) {
+        return switch (name.trim().toUpperCase()) {
+            case "FIXED" -> FIXED;
+            case "STRATIFIED" -> STRATIFIED;
+            case "BOUNDED" -> BOUNDED;
+            default -> throw new IllegalArgumentException("Unknown planning budget: " + name);
+        };
+    }
+
+    private final int minRollouts;
+    private final int maxRollouts;
+    private final int batchSize;
+    private final long maxNanosPerMove;
+    private final double convergenceTolerance;
+    private final boolean shortenHorizon;
+    private final RolloutSampling sampling;
+    private final boolean boundRegion;
+
+    /**
+     * Creates an anytime budget with a wall-clock limit per move. Rollouts are limited to the
+     * cells the bot can reach within the horizon.
+     *
+     * @param maxRollouts the most rollouts that will be run for one move
+     * @param maxMillisPerMove the most time that will be spent on rollouts for one move
+     */
+    public PlanningBudget(int maxRollouts, long maxMillisPerMove) {
+        this(Math.min(8, maxRollouts), maxRollouts, 4, maxMillisPerMove * 1_000_000L, 0.05, true,
+                RolloutSampling.PLAIN, true);
+    }
+
+    /**
+     * Creates a budget.
+     *
+     * @param minRollouts the fewest rollouts that will be run before checking for convergence
+     * @param maxRollouts the most rollouts that will be run for one move
+     * @param batchSize how many rollouts are run between convergence checks
+     * @param maxNanosPerMove the most time that will be spent on rollouts for one move
+     * @param convergenceTolerance the largest change in any cell's probability that counts as converged
+     * @param shortenHorizon whether the horizon is cut to the bot's remaining distance to the goal
+     */
+    public PlanningBudget(int minRollouts, int maxRollouts, int batchSize, long maxNanosPerMove,
+                          double convergenceTolerance, boolean shortenHorizon) {
+        this(minRollouts, maxRollouts, batchSize, maxNanosPerMove, convergenceTolerance, shortenHorizon,
+                RolloutSampling.PLAIN, false);
+    }
+
+    /**
+     * Creates a budget whose rollouts are sampled with the given scheme. With ANTITHETIC or
+     * LATTICE sampling, each batch is one antithetic set or one lattice, so batch sizes
+     * should be even for ANTITHETIC. With a bounded region, only fire next to cells the bot
+     * can reach within the horizon is simulated, and no rollouts run when there is none.
+     *
+     * @param minRollouts the fewest rollouts that will be run before checking for convergence
+     * @param maxRollouts the most rollouts that will be run for one move
+     * @param batchSize how many rollouts are run between convergence checks
+     * @param maxNanosPerMove the most time that will be spent on rollouts for one move
+     * @param convergenceTolerance the largest change in any cell's probability that counts as converged
+     * @param shortenHorizon whether the horizon is cut to the bot's remaining distance to the goal
+     * @param sampling how the ignition rolls within a batch relate to each other
+     * @param boundRegion whether rollouts are limited to the cells the bot can reach within the horizon
+     */
+    public PlanningBudget(int minRollouts, int maxRollouts, int batchSize, long maxNanosPerMove,
+                          double convergenceTolerance, boolean shortenHorizon, RolloutSampling sampling,
+                          boolean boundRegion) {
+        if (minRollouts < 1 || maxRollouts < minRollouts || batchSize < 1)
+            throw new IllegalArgumentException("Invalid rollout limits: min = " + minRollouts +
+                    ", max = " + maxRollouts + ", batch = " + batchSize);
+        this.minRollouts = minRollouts;
+        this.maxRollouts = maxRollouts;
+        this.batchSize = batchSize;
+        this.maxNanosPerMove = maxNanosPerMove;
+        this.convergenceTolerance = convergenceTolerance;
+        this.shortenHorizon = shortenHorizon;
+        this.sampling = sampling;
+        this.boundRegion = boundRegion;
+    }
+
+    public int getMinRollouts() {
+        return minRollouts;
+    }
+
+    public int getMaxRollouts() {
+        return maxRollouts;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getMaxNanosPerMove() {
+        return maxNanosPerMove;
+    }
+
+    public double getConvergenceTolerance() {
+        return convergenceTolerance;
+    }
+
+    public boolean shortensHorizon() {
+        return shortenHorizon;
+    }
+
+    public RolloutSampling getSampling() {
+        return sampling;
+    }
+
+    public boolean boundsRegion() {
+        return boundRegion;
+    }
+
+    /**
+     * A 64-bit hash of every limit in the budget, including how rollouts are sampled, so
+     * results planned under different budgets can be told apart in a cache.
+     *
+     * @return the budget's hash
+     */
+    public long fingerprint() {
+        return RandomSource.mixSeed(minRollouts, maxRollouts, batchSize, maxNanosPerMove,
+                Double.doubleToLongBits(convergenceTolerance), shortenHorizon ? 1 : 0, sampling.ordinal(),
+                boundRegion ? 1 : 0);
+    }
+}
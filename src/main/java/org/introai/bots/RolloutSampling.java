@@ -0,0 +1,51 @@
+package org.introai.bots;
+
+import org.introai.Coordinate;
+import org.introai.IgnitionRolls;
+import org.introai.RandomSource;
+import org.introai.ShipMap;
+
+import java.util.HashMap;
+
+/**
+ * How the ignition rolls of a batch of fire rollouts relate to each other.
+ */
+public enum RolloutSampling {
+    /** Every rollout draws its rolls tick by tick from the bot's random source. */
+    PLAIN,
+    /** Rollouts come in pairs whose per-cell rolls mirror each other (u and about 1 - u). */
+    ANTITHETIC,
+    /** The batch is a randomly shifted rank-1 lattice, so each cell's rolls are evenly spread. */
+    LATTICE;
+
+    /**
+     * The rolls for one rollout of a batch.
+     *
+     * @param batchSeed a seed drawn once for the batch
+     * @param rollout the rollout's position in the batch
+     * @param rollouts the number of rollouts in the batch
+     * @return the rollout's rolls, or null for PLAIN
+     */
+    public IgnitionRolls rollsFor(long batchSeed, int rollout, int rollouts) {
+        return switch (this) {
+            case PLAIN -> null;
+            case ANTITHETIC -> IgnitionRolls.antithetic(batchSeed, rollout);
+            case LATTICE -> IgnitionRolls.lattice(batchSeed, rollout, rollouts);
+        };
+    }
+
+    /**
+     * Estimates the probability that each cell ignites within the next turns from a single
+     * batch of rollouts sampled this way, exactly as one of Bot4's batches is run.
+     *
+     * @param shipMap the ship's current state, which is not changed
+     * @param turnsIntoFuture how many turns into the future each rollout looks
+     * @param rollouts how many rollouts make up the batch
+     * @param random the source of the rollouts
+     * @return a map of the probability that each cell will ignite in the next turnsIntoFuture turns
+     */
+    public HashMap<Coordinate, Double> estimateDanger(ShipMap shipMap, int turnsIntoFuture, int rollouts,
+                                                      RandomSource random) {
+        return Bot4.estimateDanger(shipMap, turnsIntoFuture, rollouts, this, random);
+    }
+}
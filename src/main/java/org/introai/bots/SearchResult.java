@@ -1,44 +1,94 @@
 package org.introai.bots;
 
 import org.introai.Coordinate;
+import org.introai.Direction;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 
+/**
+ * A path found by a search, stored as one 2-bit direction code per move. Most bots only
+ * need the first move, so the path's cells are only built if getPath is called.
+ */
 public class SearchResult {
-    private final ArrayList<Coordinate> path;
+    private static final int BITS_PER_MOVE = 2;
+    private static final int MOVES_PER_WORD = Long.SIZE / BITS_PER_MOVE;
+
+    // Moves are packed from the end of the path back to the start, in the order the
+    // parents are walked, so moveAt(i) reads code (length - 1 - i)
+    private final long[] packedMoves;
     private final Coordinate start;
     private final Coordinate end;
     private final int distanceFromStart;
+    private ArrayList<Coordinate> path;
 
-    public SearchResult(HashMap<Coordinate, Coordinate> parents, int distanceFromStart,
-                        Coordinate start, Coordinate end) {
-        this. distanceFromStart = distanceFromStart;
+    /**
+     * Encodes the path to end by following each cell's parent back to the start.
+     *
+     * @param parents a map of each reached cell's parent; the start's parent is null
+     * @param start where the path starts
+     * @param end where the path ends
+     */
+    public SearchResult(HashMap<Coordinate, Coordinate> parents, Coordinate start, Coordinate end) {
         this.start = start;
         this.end = end;
-        this.path = constructPath(end, parents);
+        long[] packed = new long[1];
+        int moves = 0;
+        Coordinate curr = end;
+        Coordinate parent = parents.get(curr);
+        while (parent != null) {
+            if (moves / MOVES_PER_WORD == packed.length) packed = Arrays.copyOf(packed, packed.length * 2);
+            long code = Direction.between(parent, curr).ordinal();
+            packed[moves / MOVES_PER_WORD] |= code << (moves % MOVES_PER_WORD * BITS_PER_MOVE);
+            moves++;
+            curr = parent;
+            parent = parents.get(curr);
+        }
+        this.packedMoves = packed;
+        this.distanceFromStart = moves;
     }
 
     /**
-     * Uses the map of parents and children to reconstruct the path.
-     * @param end where the path ends
-     * @param parents a map of each node's parent
-     * @return
+     * The first move on the path.
+     *
+     * @return the direction of the first move, or null if the path starts at its end
      */
-    private ArrayList<Coordinate> constructPath(Coordinate end, HashMap<Coordinate, Coordinate> parents) {
-        ArrayList<Coordinate> pathList = new ArrayList<>();
-        Coordinate curr = end;
-        while (curr != null) {
-            pathList.add(curr);
-            curr = parents.get(curr);
-        }
+    public Direction firstMove() {
+        if (distanceFromStart == 0) return null;
+        return moveAt(0);
+    }
 
-        Collections.reverse(pathList);
-        return pathList;
+    /**
+     * A move on the path.
+     *
+     * @param i the move's position, from 0 for the first move
+     * @return the direction of the move
+     */
+    public Direction moveAt(int i) {
+        if (i < 0 || i >= distanceFromStart)
+            throw new IndexOutOfBoundsException("Move " + i + " of a path with " + distanceFromStart + " moves");
+        int code = distanceFromStart - 1 - i;
+        long word = packedMoves[code / MOVES_PER_WORD];
+        return Direction.of((int) (word >>> (code % MOVES_PER_WORD * BITS_PER_MOVE)) & 0b11);
     }
 
+    /**
+     * Every cell on the path, from the start to the end. The list is built on the first call.
+     *
+     * @return the cells on the path
+     */
     public ArrayList<Coordinate> getPath() {
+        if (path == null) {
+            ArrayList<Coordinate> cells = new ArrayList<>(distanceFromStart + 1);
+            Coordinate curr = start;
+            cells.add(curr);
+            for (int i = 0; i < distanceFromStart; i++) {
+                curr = moveAt(i).step(curr);
+                cells.add(curr);
+            }
+            path = cells;
+        }
         return path;
     }
 
@@ -0,0 +1,24 @@
+package org.introai.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for every tick of a simulation: the bot's move followed by the fire's spread.
+ */
+@Name("org.introai.FireTick")
+@Label("Fire Tick")
+@Category({"Ship Fire", "Simulation"})
+@Description("One bot move and one step of fire spread")
+@StackTrace(false)
+public class FireTickEvent extends Event {
+    @Label("Tick")
+    public int tick;
+
+    @Label("Cells Ignited")
+    public int cellsIgnited;
+}
@@ -0,0 +1,28 @@
+package org.introai.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for every batch of fire rollouts a bot runs while planning a move.
+ */
+@Name("org.introai.RolloutBatch")
+@Label("Rollout Batch")
+@Category({"Ship Fire", "Planning"})
+@Description("A batch of simulated fires used to estimate which cells are in danger")
+@StackTrace(false)
+public class RolloutBatchEvent extends Event {
+    @Label("Rollouts")
+    public int rollouts;
+
+    @Label("Turns Into Future")
+    public int turnsIntoFuture;
+
+    @Label("Cells Ignited")
+    @Description("The total number of ignitions across every rollout in the batch")
+    public int cellsIgnited;
+}
@@ -0,0 +1,32 @@
+package org.introai.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for every path search.
+ */
+@Name("org.introai.Search")
+@Label("Search")
+@Category({"Ship Fire", "Search"})
+@Description("One A* search from the bot to the goal")
+@StackTrace(false)
+public class SearchEvent extends Event {
+    @Label("Search Type")
+    public String searchType;
+
+    @Label("Nodes Expanded")
+    public int nodesExpanded;
+
+    @Label("Largest Frontier")
+    @Description("The largest number of entries in the fringe at any point in the search")
+    public int maxFrontierSize;
+
+    @Label("Path Length")
+    @Description("The number of moves in the path found, or -1 if there is no path")
+    public int pathLength;
+}
@@ -0,0 +1,37 @@
+package org.introai.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded once for every call to Simulation.run.
+ */
+@Name("org.introai.SimulationRun")
+@Label("Simulation Run")
+@Category({"Ship Fire", "Simulation"})
+@Description("One bot running on one ship until it reaches the goal or is stopped by the fire")
+@StackTrace(false)
+public class SimulationRunEvent extends Event {
+    @Label("Bot")
+    public String bot;
+
+    @Label("Ship Size")
+    public int shipSize;
+
+    @Label("Flammability")
+    public double flammability;
+
+    @Label("Ticks")
+    public int ticks;
+
+    @Label("Replayed Fire")
+    @Description("Whether the fire was replayed from a precomputed trajectory")
+    public boolean replayed;
+
+    @Label("Won")
+    public boolean won;
+}
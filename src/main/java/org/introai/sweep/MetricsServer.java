@@ -0,0 +1,86 @@
+package org.introai.sweep;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A small HTTP server on the loopback interface that serves a sweep's counters at /metrics
+ * in the Prometheus text format. Requests are handled on a single daemon thread, so scraping
+ * never competes with the sweep for more than one core.
+ */
+public class MetricsServer implements AutoCloseable {
+    public static final String PORT_PROPERTY = "metrics.port";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Starts serving the given counters.
+     *
+     * @param port the local port to listen on, or 0 for any free port
+     * @param metrics the counters to serve
+     * @throws IOException if the port cannot be bound
+     */
+    public MetricsServer(int port, SweepMetrics metrics) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> respond(exchange, metrics));
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Starts serving the global counters if the "metrics.port" system property is set.
+     *
+     * @return the running server, or null if no port was configured
+     * @throws IOException if the port cannot be bound
+     */
+    public static MetricsServer startIfConfigured() throws IOException {
+        Integer port = Integer.getInteger(PORT_PROPERTY);
+        if (port == null) return null;
+        MetricsServer server = new MetricsServer(port, SweepMetrics.global());
+        System.out.println("Metrics at http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" +
+                server.getPort() + "/metrics");
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, SweepMetrics metrics) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, waiting at most a second for a scrape in progress.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+}
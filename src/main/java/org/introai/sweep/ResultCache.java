@@ -0,0 +1,240 @@
+package org.introai.sweep;
+
+import org.introai.RandomSource;
+import org.introai.Simulation;
+import org.introai.bots.Bot4;
+import org.introai.bots.BotType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An on-disk cache of seeded run outcomes, so a sweep rerun after changing one bot only
+ * simulates that bot. Each run is identified by a hash of its layout, its seed, its bot and
+ * the bot's version, q, and the system properties that change how runs behave; changing any
+ * of them gives a new key, so stale results are never returned as long as bot versions are
+ * bumped with behavior changes.
+ * <p>
+ * The file is an append-only log: a header of two big-endian ints, the magic number
+ * 0x52435348 and the format version, followed by one 9-byte record per run holding the
+ * run's key as a long and 1 for a win or 0 for a loss. Opening the cache maps the file into
+ * memory and indexes every record; a record cut short by a crash is dropped. New results are
+ * appended as they finish, so an interrupted sweep keeps every run it completed.
+ */
+public class ResultCache implements AutoCloseable {
+    private static final int MAGIC = 0x52435348; // "RCSH"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int RECORD_BYTES = Long.BYTES + 1;
+    /** System properties that can change the outcome of a seeded run. */
+    static final String[] RUN_PROPERTIES = {
+            "random.algorithm", "search.landmarks", "search.landmarkCount", "bot4.budget",
+            "bot5.threads", "bot5.maxMillisPerMove"
+    };
+    private static final long RUN_PROPERTIES_HASH = hashRunProperties();
+
+    private final FileChannel channel;
+    private final ConcurrentHashMap<Long, Boolean> outcomes;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /**
+     * Opens a cache file, creating it if it does not exist. Outcomes can only be cached while
+     * each run depends on nothing but its seed, so Bot4's shared danger map cache must be off.
+     *
+     * @param file the cache file
+     * @throws IOException if the file cannot be read or is not a cache file
+     * @throws IllegalStateException if Bot4 shares danger maps between runs
+     */
+    public ResultCache(Path file) throws IOException {
+        requireIndependentRuns("Result caching");
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.outcomes = new ConcurrentHashMap<>();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        try {
+            load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the cache named by the "results.cache" system property.
+     *
+     * @return the cache, or null if the property is not set
+     * @throws IOException if the file cannot be read or is not a cache file
+     */
+    public static ResultCache openIfConfigured() throws IOException {
+        String file = System.getProperty("results.cache");
+        if (file == null) return null;
+        return new ResultCache(Path.of(file));
+    }
+
+    /**
+     * Reads every whole record into the index, writing a header first if the file is new.
+     *
+     * @throws IOException if the file cannot be read or is not a cache file
+     */
+    private void load() throws IOException {
+        long fileSize = channel.size();
+        if (fileSize > Integer.MAX_VALUE)
+            throw new IOException("Result cache files are limited to 2 GB, not " + fileSize + " bytes");
+        if (fileSize < HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            channel.position(HEADER_BYTES);
+            return;
+        }
+
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        if (mapped.getInt(0) != MAGIC || mapped.getInt(Integer.BYTES) != VERSION)
+            throw new IOException("Not a version " + VERSION + " result cache file");
+        long records = (fileSize - HEADER_BYTES) / RECORD_BYTES;
+        for (long r = 0; r < records; r++) {
+            int offset = (int) (HEADER_BYTES + r * RECORD_BYTES);
+            outcomes.put(mapped.getLong(offset), mapped.get(offset + Long.BYTES) != 0);
+        }
+        // Drop a record cut short by a crash so new records stay aligned
+        long end = HEADER_BYTES + records * RECORD_BYTES;
+        if (end < fileSize) channel.truncate(end);
+        channel.position(end);
+    }
+
+    /**
+     * The key of a seeded run under this JVM's system properties.
+     *
+     * @param layoutHash the hash of the run's ship layout
+     * @param seed the run's seed
+     * @param botType the bot being run
+     * @param q the ship's flammability
+     * @return the key the run's outcome is stored under
+     */
+    public static long key(long layoutHash, long seed, BotType botType, double q) {
+        return RandomSource.mixSeed(layoutHash, seed, hash(botType.name()), botType.getVersion(),
+                Double.doubleToLongBits(q), RUN_PROPERTIES_HASH);
+    }
+
+    /**
+     * Hashes the value of every property in RUN_PROPERTIES, telling unset properties apart
+     * from ones set to any value.
+     *
+     * @return a hash of the properties
+     */
+    private static long hashRunProperties() {
+        long hash = 0;
+        for (String property : RUN_PROPERTIES) {
+            String value = System.getProperty(property);
+            hash = RandomSource.mixSeed(hash, hash(property), value == null ? 0 : 1,
+                    value == null ? 0 : hash(value));
+        }
+        return hash;
+    }
+
+    /**
+     * A 64-bit hash of every character of a string, so different names do not collide the way
+     * 32-bit String.hashCode values can.
+     *
+     * @param text the string to hash
+     * @return the string's hash
+     */
+    private static long hash(String text) {
+        long hash = text.length();
+        for (int i = 0; i < text.length(); i++) hash = RandomSource.mixSeed(hash, text.charAt(i));
+        return hash;
+    }
+
+    /**
+     * Runs a seeded simulation exactly as Simulation.runSeeded does, unless its outcome is
+     * already cached. The ship is still generated on a hit, since its layout is part of the
+     * key, but the bot is not run.
+     *
+     * @param botType the bot to run
+     * @param shipSize the size of the ship
+     * @param shipFlammability the flammability of the ship
+     * @param seed the seed identifying the run
+     * @return true if the bot was successful, otherwise false
+     * @throws IOException if a new outcome cannot be appended to the file
+     */
+    public boolean runSeeded(BotType botType, int shipSize, double shipFlammability, long seed) throws IOException {
+        RandomSource random = RandomSource.seeded(seed);
+        Simulation sim = new Simulation(shipSize, shipFlammability, random.split());
+        long key = key(sim.getShipMap().getLayoutHash(), seed, botType, shipFlammability);
+        Boolean cached = outcomes.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        boolean result = sim.run(botType.create(sim.getShipMap(), random.split()));
+        put(key, result);
+        return result;
+    }
+
+    /**
+     * Stores a run's outcome and appends it to the file.
+     *
+     * @param key the run's key
+     * @param won whether the bot won
+     * @throws IOException if the outcome cannot be appended
+     */
+    public void put(long key, boolean won) throws IOException {
+        if (outcomes.putIfAbsent(key, won) != null) return;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).putLong(key).put((byte) (won ? 1 : 0)).flip();
+        synchronized (channel) {
+            while (record.hasRemaining()) channel.write(record);
+        }
+    }
+
+    /**
+     * Looks up a run's outcome.
+     *
+     * @param key the run's key
+     * @return true for a win, false for a loss, or null if the run is not cached
+     */
+    public Boolean get(long key) {
+        return outcomes.get(key);
+    }
+
+    public int size() {
+        return outcomes.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (channel) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    /**
+     * Fails if runs are not independent of each other, which seeded sweeps rely on to give
+     * the same outcome for a run however the sweep is split, ordered, or cached.
+     *
+     * @param feature what needs independent runs, for the error message
+     * @throws IllegalStateException if Bot4 shares danger maps between runs
+     */
+    static void requireIndependentRuns(String feature) {
+        if (Bot4.sharesDangerMaps())
+            throw new IllegalStateException(feature + " needs runs that depend only on their seeds; " +
+                    "unset bot4.dangerCacheEntries");
+    }
+}
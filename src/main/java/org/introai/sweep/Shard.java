@@ -0,0 +1,105 @@
+package org.introai.sweep;
+
+import org.introai.RandomSource;
+import org.introai.Simulation;
+import org.introai.bots.BotType;
+
+/**
+ * A contiguous range of runs for one bot at one q-value. Shards are the unit of work handed
+ * from a ShardCoordinator to its workers.
+ */
+public class Shard {
+    private final int id;
+    private final BotType botType;
+    private final int qIndex;
+    private final double q;
+    private final int runStart;
+    private final int runEnd;
+    private final int shipSize;
+    private final long baseSeed;
+
+    /**
+     * Creates a shard.
+     *
+     * @param id the shard's position in the coordinator's list of shards
+     * @param botType the bot to run
+     * @param qIndex the position of q in the sweep's list of q-values
+     * @param q the ship's flammability
+     * @param runStart the first run in the shard
+     * @param runEnd one past the last run in the shard
+     * @param shipSize the size of the ships to simulate
+     * @param baseSeed the sweep's seed, from which each run's seed is derived
+     */
+    public Shard(int id, BotType botType, int qIndex, double q, int runStart, int runEnd, int shipSize,
+                 long baseSeed) {
+        this.id = id;
+        this.botType = botType;
+        this.qIndex = qIndex;
+        this.q = q;
+        this.runStart = runStart;
+        this.runEnd = runEnd;
+        this.shipSize = shipSize;
+        this.baseSeed = baseSeed;
+    }
+
+    /**
+     * Runs every simulation in the shard. Each run is seeded from its position in the sweep,
+     * so a run has the same outcome no matter which shard or worker it lands in.
+     *
+     * @return the number of runs the bot won
+     */
+    public int run() {
+        int wins = 0;
+        for (int i = runStart; i < runEnd; i++) {
+            long seed = RandomSource.mixSeed(baseSeed, botType.ordinal(), qIndex, i);
+            if (Simulation.runSeeded(botType, shipSize, q, seed)) wins += 1;
+        }
+        return wins;
+    }
+
+    /**
+     * Encodes the shard as a single line for sending to a worker.
+     *
+     * @return the shard's wire format
+     */
+    public String toMessage() {
+        return "SHARD " + id + " " + botType.name() + " " + qIndex + " " + q + " " +
+                runStart + " " + runEnd + " " + shipSize + " " + baseSeed;
+    }
+
+    /**
+     * Decodes a shard sent by a coordinator.
+     *
+     * @param message a line produced by toMessage
+     * @return the shard described by the message
+     * @throws IllegalArgumentException if the message is not a shard
+     */
+    public static Shard fromMessage(String message) {
+        String[] parts = message.trim().split(" ");
+        if (parts.length != 9 || !parts[0].equals("SHARD"))
+            throw new IllegalArgumentException("Not a shard: " + message);
+        return new Shard(Integer.parseInt(parts[1]), BotType.valueOf(parts[2]), Integer.parseInt(parts[3]),
+                Double.parseDouble(parts[4]), Integer.parseInt(parts[5]), Integer.parseInt(parts[6]),
+                Integer.parseInt(parts[7]), Long.parseLong(parts[8]));
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public BotType getBotType() {
+        return botType;
+    }
+
+    public int getQIndex() {
+        return qIndex;
+    }
+
+    public double getQ() {
+        return q;
+    }
+
+    public int getRunCount() {
+        return runEnd - runStart;
+    }
+}
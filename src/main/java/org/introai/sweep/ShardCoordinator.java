@@ -0,0 +1,244 @@
+package org.introai.sweep;
+
+import org.introai.bots.BotType;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits a sweep over (bot, q, run range) into shards and hands them out to worker JVMs over
+ * sockets. Workers are either launched by the coordinator or started separately with
+ * ShardWorker and pointed at the coordinator's port.
+ * <p>
+ * The coordinator listens on the address named by the "shard.bindAddress" system property
+ * (the loopback address by default, so only this machine can connect) and the port named by
+ * "shard.port" (any free port by default). To spread a sweep over several machines, bind to
+ * an address the other machines can reach, such as -Dshard.bindAddress=0.0.0.0
+ * -Dshard.port=7070, then start each remote worker with
+ * {@code java -cp <classpath> <run properties> org.introai.sweep.ShardWorker <host> 7070},
+ * passing the same -D values for the properties in ResultCache.RUN_PROPERTIES as the
+ * coordinator, so every machine runs the same runs. The protocol is unauthenticated, so only
+ * bind beyond loopback on a trusted network. Every run is seeded from its position in
+ * the sweep and win counts from each shard are summed, so the merged totals do not depend on
+ * how the sweep was split or which worker ran what.
+ * Shards held by a worker that disconnects are handed to another worker.
+ */
+public class ShardCoordinator {
+    static final String RESULT = "RESULT";
+    static final String DONE = "DONE";
+    private static final int POLL_MILLIS = 100;
+    private static final String BIND_ADDRESS = System.getProperty("shard.bindAddress");
+    private static final int PORT = Integer.getInteger("shard.port", 0);
+
+    private final BotType[] botTypes;
+    private final int[][] wins;
+    private final LinkedBlockingQueue<Shard> pending;
+    private final ArrayList<Shard> shards;
+    private int completedShards;
+
+    /**
+     * Creates a coordinator for a sweep.
+     *
+     * @param botTypes the bots to evaluate
+     * @param qValues the flammability values to evaluate each bot at
+     * @param shipSize the size of the ships to simulate
+     * @param runs the number of runs for each bot at each q-value
+     * @param runsPerShard the most runs any single shard will contain
+     * @param baseSeed the sweep's seed
+     * @throws IllegalStateException if Bot4 shares danger maps between runs, since the totals
+     *                               would then depend on which worker ran which shards
+     */
+    public ShardCoordinator(BotType[] botTypes, double[] qValues, int shipSize, int runs, int runsPerShard,
+                            long baseSeed) {
+        if (runsPerShard < 1) throw new IllegalArgumentException("Shards must contain at least one run");
+        ResultCache.requireIndependentRuns("A sharded sweep");
+        this.botTypes = botTypes.clone();
+        this.wins = new int[botTypes.length][qValues.length];
+        this.pending = new LinkedBlockingQueue<>();
+        this.shards = new ArrayList<>();
+
+        for (BotType botType : botTypes) {
+            for (int qi = 0; qi < qValues.length; qi++) {
+                for (int start = 0; start < runs; start += runsPerShard) {
+                    int end = Math.min(runs, start + runsPerShard);
+                    shards.add(new Shard(shards.size(), botType, qi, qValues[qi], start, end, shipSize, baseSeed));
+                }
+            }
+        }
+        pending.addAll(shards);
+    }
+
+    /**
+     * Runs the sweep, launching the given number of local worker JVMs. Further workers may
+     * connect to the coordinator's port while the sweep runs.
+     *
+     * @param localWorkers how many worker processes to launch on this machine
+     * @return the number of wins for each bot at each q-value, indexed [bot][q] in the order
+     *         the bots were given
+     * @throws IOException if the coordinator's socket cannot be opened, for example because
+     *                     shard.bindAddress is not an address of this machine
+     */
+    public int[][] run(int localWorkers) throws IOException {
+        ArrayList<Process> processes = new ArrayList<>();
+        ArrayList<Thread> connections = new ArrayList<>();
+
+        SweepMetrics metrics = SweepMetrics.global();
+        metrics.setQueueDepth("pending_shards", pending::size);
+        metrics.setQueueDepth("unfinished_shards", () -> shards.size() - getCompletedShards());
+
+        InetAddress bindAddress = BIND_ADDRESS == null ? InetAddress.getLoopbackAddress() :
+                InetAddress.getByName(BIND_ADDRESS);
+        try (ServerSocket server = new ServerSocket(PORT, 50, bindAddress)) {
+            server.setSoTimeout(POLL_MILLIS);
+            System.out.println("Coordinator listening on " + bindAddress.getHostAddress() + ":" +
+                    server.getLocalPort() + " with " + shards.size() + " shards");
+            // Local workers can always reach a wildcard bind through loopback
+            InetAddress workerAddress = bindAddress.isAnyLocalAddress() ? InetAddress.getLoopbackAddress() :
+                    bindAddress;
+            for (int i = 0; i < localWorkers; i++) {
+                processes.add(launchWorker(workerAddress, server.getLocalPort()));
+            }
+
+            while (!isFinished()) {
+                try {
+                    Socket socket = server.accept();
+                    Thread connection = new Thread(() -> serve(socket), "shard-connection-" + connections.size());
+                    connection.setDaemon(true);
+                    connection.start();
+                    connections.add(connection);
+                } catch (SocketTimeoutException e) {
+                    if (localWorkers > 0 && !isFinished() && processes.stream().noneMatch(Process::isAlive) &&
+                            connections.stream().noneMatch(Thread::isAlive))
+                        throw new IOException("Every worker exited before the sweep finished");
+                }
+            }
+        } finally {
+            for (Thread connection : connections) {
+                try {
+                    connection.join(TimeUnit.SECONDS.toMillis(5));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            for (Process process : processes) {
+                if (process.isAlive()) process.destroy();
+            }
+            metrics.removeQueueDepth("pending_shards");
+            metrics.removeQueueDepth("unfinished_shards");
+        }
+        return wins;
+    }
+
+    /**
+     * Hands shards to one connected worker until the sweep is finished or the worker fails.
+     *
+     * @param socket the worker's connection
+     */
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            while (!isFinished()) {
+                Shard shard = pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (shard == null) continue;
+                try {
+                    out.println(shard.toMessage());
+                    if (out.checkError()) throw new IOException("Worker connection closed");
+                    String line = in.readLine();
+                    if (line == null) throw new IOException("Worker connection closed");
+                    recordResult(shard, line);
+                } catch (IOException | RuntimeException e) {
+                    pending.add(shard);
+                    throw e;
+                }
+            }
+            out.println(DONE);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Lost a worker: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Merges a worker's reply for a shard into the totals.
+     *
+     * @param shard the shard the worker ran
+     * @param line the worker's reply
+     * @throws IOException if the reply is not a result for the shard
+     */
+    private synchronized void recordResult(Shard shard, String line) throws IOException {
+        String[] parts = line.trim().split(" ");
+        if (parts.length != 3 || !parts[0].equals(RESULT) || Integer.parseInt(parts[1]) != shard.getId())
+            throw new IOException("Unexpected reply for shard " + shard.getId() + ": " + line);
+        int shardWins = Integer.parseInt(parts[2]);
+        if (shardWins < 0 || shardWins > shard.getRunCount())
+            throw new IOException("Impossible win count for shard " + shard.getId() + ": " + line);
+        wins[rowOf(shard.getBotType())][shard.getQIndex()] += shardWins;
+        completedShards++;
+        SweepMetrics.global().recordRuns(shard.getBotType(), shard.getQ(), shard.getRunCount(), shardWins);
+    }
+
+    /**
+     * Finds which row of the totals holds a bot's wins.
+     *
+     * @param botType one of the bots being evaluated
+     * @return the bot's position in the sweep
+     */
+    private int rowOf(BotType botType) {
+        for (int i = 0; i < botTypes.length; i++) {
+            if (botTypes[i] == botType) return i;
+        }
+        throw new IllegalArgumentException(botType + " is not part of this sweep");
+    }
+
+    private synchronized boolean isFinished() {
+        return completedShards == shards.size();
+    }
+
+    private synchronized int getCompletedShards() {
+        return completedShards;
+    }
+
+    /**
+     * Starts a worker JVM on this machine with the coordinator's classpath and any of the
+     * coordinator's system properties that affect runs.
+     *
+     * @param address the address the worker connects to
+     * @param port the coordinator's port
+     * @return the worker's process
+     * @throws IOException if the process cannot be started
+     */
+    private static Process launchWorker(InetAddress address, int port) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ArrayList<String> command = new ArrayList<>();
+        command.add(java);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        String seed = System.getProperty("seed");
+        if (seed != null) command.add("-Dseed=" + seed);
+        // Workers must run exactly the runs the coordinator would have
+        for (String property : ResultCache.RUN_PROPERTIES) {
+            String value = System.getProperty(property);
+            if (value != null) command.add("-D" + property + "=" + value);
+        }
+        command.add(ShardWorker.class.getName());
+        command.add(address.getHostAddress());
+        command.add(Integer.toString(port));
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.inheritIO();
+        return builder.start();
+    }
+}
@@ -0,0 +1,50 @@
+package org.introai.sweep;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A worker process for a sharded sweep. It connects to a coordinator, runs each shard it is
+ * sent, and reports the shard's win count until the coordinator says it is done. A worker
+ * started by hand, for example on another machine, must be given the same run-affecting
+ * system properties as the coordinator; see ShardCoordinator.
+ */
+public class ShardWorker {
+    /**
+     * Usage: ShardWorker host port
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ShardWorker <host> <port>");
+            System.exit(2);
+        }
+        work(args[0], Integer.parseInt(args[1]));
+    }
+
+    /**
+     * Runs shards from the coordinator at the given address until it has no more work.
+     *
+     * @param host the coordinator's host
+     * @param port the coordinator's port
+     * @throws IOException if the connection to the coordinator fails
+     * @throws IllegalStateException if Bot4 shares danger maps between runs
+     */
+    public static void work(String host, int port) throws IOException {
+        ResultCache.requireIndependentRuns("A shard worker");
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null && !line.equals(ShardCoordinator.DONE)) {
+                Shard shard = Shard.fromMessage(line);
+                int wins = shard.run();
+                out.println(ShardCoordinator.RESULT + " " + shard.getId() + " " + wins);
+            }
+        }
+    }
+}
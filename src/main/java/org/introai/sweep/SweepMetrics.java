@@ -0,0 +1,188 @@
+package org.introai.sweep;
+
+import org.introai.bots.BotType;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Live progress counters for a running sweep, rendered in the Prometheus text format.
+ * Sweeps record each finished run; recording only bumps LongAdders, so any number of worker
+ * threads can record at once without contending on a lock. Queue depths are read from the
+ * sweep's own queues when the counters are scraped.
+ */
+public class SweepMetrics {
+    private static final SweepMetrics GLOBAL = new SweepMetrics();
+
+    // Keyed by the bot's label value
+    private final ConcurrentHashMap<String, BotCounters> countersByBot;
+    // Keyed by the rendered label set; holds {runs, wins}
+    private final ConcurrentHashMap<String, LongAdder[]> resultsByQ;
+    private final ConcurrentHashMap<String, LongSupplier> queueDepths;
+
+    /**
+     * Creates a set of counters with nothing recorded.
+     */
+    public SweepMetrics() {
+        this.countersByBot = new ConcurrentHashMap<>();
+        // Every bot is published from the start, so its counters read 0 rather than missing
+        for (BotType botType : BotType.values()) countersByBot.put(labelOf(botType), new BotCounters());
+        this.resultsByQ = new ConcurrentHashMap<>();
+        this.queueDepths = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * The counters shared by everything in this JVM. These are the counters a MetricsServer
+     * publishes.
+     *
+     * @return the process-wide counters
+     */
+    public static SweepMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Records one finished run.
+     *
+     * @param botType the bot that ran
+     * @param q the ship's flammability
+     * @param won whether the bot reached the goal
+     */
+    public void recordRun(BotType botType, double q, boolean won) {
+        recordRuns(botType, q, 1, won ? 1 : 0);
+    }
+
+    /**
+     * Records a batch of finished runs, such as a shard reported by a worker.
+     *
+     * @param botType the bot that ran
+     * @param q the ship's flammability
+     * @param runs how many runs finished
+     * @param wins how many of them the bot won
+     */
+    public void recordRuns(BotType botType, double q, int runs, int wins) {
+        recordRuns(labelOf(botType), q, runs, wins);
+    }
+
+    /**
+     * Records a batch of finished runs by something that is not one of the BotTypes, such as
+     * a BatchSimulation policy.
+     *
+     * @param bot the value of the runs' bot label, which must not be a BotType's label
+     * @param q the ship's flammability
+     * @param runs how many runs finished
+     * @param wins how many of them were won
+     */
+    public void recordRuns(String bot, double q, int runs, int wins) {
+        BotCounters counters = countersByBot.computeIfAbsent(bot, label -> new BotCounters());
+        long now = System.nanoTime();
+        if (counters.firstRunNanos.get() == 0) counters.firstRunNanos.compareAndSet(0, now);
+        counters.lastRunNanos.set(now);
+        counters.runs.add(runs);
+
+        String key = "bot=\"" + bot + "\",q=\"" + formatQ(q) + "\"";
+        LongAdder[] results = resultsByQ.get(key);
+        if (results == null) {
+            LongAdder[] created = {new LongAdder(), new LongAdder()};
+            results = resultsByQ.putIfAbsent(key, created);
+            if (results == null) results = created;
+        }
+        results[0].add(runs);
+        results[1].add(wins);
+    }
+
+    /**
+     * Publishes the depth of one of the sweep's queues. The supplier is called on every
+     * scrape, so it must be safe to call from another thread.
+     *
+     * @param queue the queue's name, used as the label value
+     * @param depth reads how many items are waiting in the queue
+     */
+    public void setQueueDepth(String queue, LongSupplier depth) {
+        queueDepths.put(queue, depth);
+    }
+
+    /**
+     * Stops publishing a queue's depth.
+     *
+     * @param queue the name the queue was published under
+     */
+    public void removeQueueDepth(String queue) {
+        queueDepths.remove(queue);
+    }
+
+    /**
+     * Renders every counter in the Prometheus text exposition format.
+     *
+     * @return the current values of every counter
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        TreeMap<String, BotCounters> bots = new TreeMap<>(countersByBot);
+
+        header(out, "sweep_runs_completed_total", "counter", "Simulation runs finished, by bot.");
+        for (Map.Entry<String, BotCounters> entry : bots.entrySet())
+            sample(out, "sweep_runs_completed_total", "bot=\"" + entry.getKey() + "\"", entry.getValue().runs.sum());
+
+        header(out, "sweep_runs_per_second", "gauge", "Runs finished per second between a bot's first and latest run.");
+        for (Map.Entry<String, BotCounters> entry : bots.entrySet()) {
+            BotCounters counters = entry.getValue();
+            long runs = counters.runs.sum();
+            long elapsed = counters.lastRunNanos.get() - counters.firstRunNanos.get();
+            double rate = runs > 1 && elapsed > 0 ? (runs - 1) * 1e9 / elapsed : 0;
+            sample(out, "sweep_runs_per_second", "bot=\"" + entry.getKey() + "\"", rate);
+        }
+
+        TreeMap<String, LongAdder[]> results = new TreeMap<>(resultsByQ);
+        header(out, "sweep_q_runs_total", "counter", "Simulation runs finished, by bot and q.");
+        for (Map.Entry<String, LongAdder[]> entry : results.entrySet())
+            sample(out, "sweep_q_runs_total", entry.getKey(), entry.getValue()[0].sum());
+        header(out, "sweep_wins_total", "counter", "Simulation runs won, by bot and q.");
+        for (Map.Entry<String, LongAdder[]> entry : results.entrySet())
+            sample(out, "sweep_wins_total", entry.getKey(), entry.getValue()[1].sum());
+
+        header(out, "sweep_queue_depth", "gauge", "Work items waiting in each of the sweep's queues.");
+        for (Map.Entry<String, LongSupplier> entry : new TreeMap<>(queueDepths).entrySet())
+            sample(out, "sweep_queue_depth", "queue=\"" + entry.getKey() + "\"", entry.getValue().getAsLong());
+        return out.toString();
+    }
+
+    private static String labelOf(BotType botType) {
+        return botType.name().toLowerCase();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append('{').append(labels).append("} ");
+        if (value == Math.rint(value)) out.append((long) value);
+        else out.append(value);
+        out.append('\n');
+    }
+
+    /**
+     * Formats q without the floating point noise left by stepping through q-values.
+     *
+     * @param q a flammability
+     * @return q rounded to six decimal places
+     */
+    private static String formatQ(double q) {
+        return Double.toString(Math.round(q * 1e6) / 1e6);
+    }
+
+    /**
+     * The run counters for one bot.
+     */
+    private static class BotCounters {
+        private final LongAdder runs = new LongAdder();
+        private final AtomicLong firstRunNanos = new AtomicLong();
+        private final AtomicLong lastRunNanos = new AtomicLong();
+    }
+}